@@ -0,0 +1,73 @@
+package com.safekid.ai.service;
+
+import com.safekid.ai.config.PromptTraceProperties;
+import com.safekid.ai.entity.AnalysisType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI servislerinin konum işleme yolları, bir günlük iz üzerinde.
+ * intervalSeconds=10 tipik cihaz, 1 ise 1 Hz yoğun iz.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationDataCollectorBenchmark {
+
+    @Param({"10", "1"})
+    public int intervalSeconds;
+
+    private final LocationDataCollector collector = new LocationDataCollector();
+    private final TraceSimplifier simplifier = new TraceSimplifier(new PromptTraceProperties());
+    private LocationTrace day;
+    private LocationTrace lastHour;
+
+    @Setup
+    public void setup() {
+        day = TraceFixtures.oneDay(intervalSeconds);
+        lastHour = day.tail(day.size() - 3600 / intervalSeconds);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double haversine() {
+        int mid = day.size() / 2;
+        return LocationDataCollector.haversine(day.lat(0), day.lng(0), day.lat(mid), day.lng(mid));
+    }
+
+    @Benchmark
+    public double totalDistanceDay() {
+        return collector.calculateTotalDistanceKm(day);
+    }
+
+    /** AnomalyDetectionService'in son bir saat üzerindeki 60 sn pencere taraması. */
+    @Benchmark
+    public double maxWindowSpeedLastHour() {
+        double max = 0;
+        for (int i = 1; i < lastHour.size(); i++) {
+            max = Math.max(max, collector.calculateWindowAverageSpeedKmh(lastHour, i, 60));
+        }
+        return max;
+    }
+
+    /** Aynı tarama, önek toplamı + iki işaretçi ile tek geçişte. */
+    @Benchmark
+    public double maxWindowSpeedLastHourSinglePass() {
+        return collector.maxWindowAverageSpeedKmh(lastHour, 60);
+    }
+
+    @Benchmark
+    public String formatLocationsForPromptDay() {
+        return collector.formatLocationsForPrompt(day);
+    }
+
+    /** DailySummaryService yolu: önce sadeleştir, sonra bütçeli tabloyu üret. */
+    @Benchmark
+    public String formatSimplifiedForPromptDay() {
+        return collector.formatLocationsForPrompt(simplifier.simplify(day, AnalysisType.DAILY_SUMMARY));
+    }
+}
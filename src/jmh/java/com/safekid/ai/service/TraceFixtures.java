@@ -0,0 +1,65 @@
+package com.safekid.ai.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Random;
+
+/**
+ * Benchmark'lar için gerçekçi, tekrarlanabilir bir günlük GPS izi üretir:
+ * evde durma (GPS sürüklenmesi), okula yürüme, okulda durma, servisle dönüş.
+ */
+final class TraceFixtures {
+
+    private static final double HOME_LAT = 41.0082, HOME_LNG = 28.9784;
+    private static final double SCHOOL_LAT = 41.0205, SCHOOL_LNG = 28.9950;
+    private static final double CLUB_LAT = 41.0410, CLUB_LNG = 29.0120;
+
+    private TraceFixtures() {}
+
+    /**
+     * @param intervalSeconds iki konum arası süre (1 → 1 Hz)
+     */
+    static LocationTrace oneDay(int intervalSeconds) {
+        Random rnd = new Random(7);
+        Instant start = LocalDate.of(2025, 3, 12).atStartOfDay(ZoneId.of("Europe/Istanbul")).toInstant();
+        int n = 86_400 / intervalSeconds;
+        LocationTrace.Builder out = new LocationTrace.Builder(n);
+
+        for (int i = 0; i < n; i++) {
+            int second = i * intervalSeconds;
+            double hour = second / 3600.0;
+            double lat, lng;
+
+            if (hour < 7.5) {
+                lat = HOME_LAT; lng = HOME_LNG;
+            } else if (hour < 8.0) {                 // yürüyüş
+                double t = (hour - 7.5) / 0.5;
+                lat = lerp(HOME_LAT, SCHOOL_LAT, t); lng = lerp(HOME_LNG, SCHOOL_LNG, t);
+            } else if (hour < 15.5) {
+                lat = SCHOOL_LAT; lng = SCHOOL_LNG;
+            } else if (hour < 15.75) {               // servis
+                double t = (hour - 15.5) / 0.25;
+                lat = lerp(SCHOOL_LAT, CLUB_LAT, t); lng = lerp(SCHOOL_LNG, CLUB_LNG, t);
+            } else if (hour < 18.0) {
+                lat = CLUB_LAT; lng = CLUB_LNG;
+            } else if (hour < 18.5) {
+                double t = (hour - 18.0) / 0.5;
+                lat = lerp(CLUB_LAT, HOME_LAT, t); lng = lerp(CLUB_LNG, HOME_LNG, t);
+            } else {
+                lat = HOME_LAT; lng = HOME_LNG;
+            }
+
+            // ~10 m GPS gürültüsü
+            lat += rnd.nextGaussian() * 0.00009;
+            lng += rnd.nextGaussian() * 0.00009;
+
+            out.add(lat, lng, start.plusSeconds(second).toEpochMilli());
+        }
+        return out.build();
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
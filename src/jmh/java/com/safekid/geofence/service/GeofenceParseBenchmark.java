@@ -0,0 +1,76 @@
+package com.safekid.geofence.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safekid.child.sse.InProcessSseEventBus;
+import com.safekid.geofence.entity.GeofenceEntity;
+import com.safekid.geofence.repository.GeofenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bir çocuğun alanlarının önbelleğe yüklenme maliyeti: GeoJSON ayrıştırma,
+ * {@code CompiledPolygon} ve ızgara indeksi kurulumu. Üretimdeki
+ * {@link GeofenceCache#zonesFor} yolu ölçülür; TTL sıfır olduğu için her çağrı yeniden yükler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeofenceParseBenchmark {
+
+    private static final String CHILD_ID = "bench-child";
+
+    @Param({"8", "64", "512"})
+    public int vertexCount;
+
+    @Param({"1", "10"})
+    public int zoneCount;
+
+    private GeofenceCache cache;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<List<Double>> ring = new ArrayList<>(vertexCount + 1);
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            ring.add(List.of(28.9784 + 0.004 * Math.cos(angle), 41.0082 + 0.004 * Math.sin(angle)));
+        }
+        ring.add(ring.get(0));
+        String geoJson = objectMapper.writeValueAsString(Map.of("type", "Polygon", "coordinates", List.of(ring)));
+
+        List<GeofenceEntity> zones = new ArrayList<>(zoneCount);
+        for (long id = 0; id < zoneCount; id++) {
+            GeofenceEntity zone = new GeofenceEntity();
+            zone.setId(id);
+            zone.setAlanAdi("Alan " + id);
+            zone.setGeoJson(geoJson);
+            zone.setAktif(true);
+            zones.add(zone);
+        }
+
+        // Yalnızca findByChild_CocukUniqueIdAndAktifTrue çağrılır
+        GeofenceRepository repository = (GeofenceRepository) Proxy.newProxyInstance(
+                GeofenceRepository.class.getClassLoader(),
+                new Class<?>[]{GeofenceRepository.class},
+                (proxy, method, args) -> zones);
+
+        cache = new GeofenceCache(repository, objectMapper, new InProcessSseEventBus(),
+                new SimpleMeterRegistry(), Duration.ZERO);
+    }
+
+    @Benchmark
+    public Object compileZones() {
+        return cache.zonesFor(CHILD_ID);
+    }
+}
@@ -0,0 +1,72 @@
+package com.safekid.geofence.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Farklı köşe sayılarında polygon kontrolü.
+ * Noktaların yarısı polygon içinde, yarısı sınır kutusunun yakınında dışarıda.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PointInPolygonBenchmark {
+
+    private static final double CENTER_LNG = 28.9784;
+    private static final double CENTER_LAT = 41.0082;
+    private static final double RADIUS = 0.004; // ~450 m, okul kampüsü
+
+    @Param({"8", "64", "512"})
+    public int vertexCount;
+
+    private List<List<Double>> ring;
+    private CompiledPolygon compiled;
+    private double[] lats;
+    private double[] lngs;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        ring = new ArrayList<>(vertexCount + 1);
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            double r = RADIUS * (0.8 + 0.2 * rnd.nextDouble());
+            ring.add(List.of(CENTER_LNG + r * Math.cos(angle), CENTER_LAT + r * Math.sin(angle)));
+        }
+        ring.add(ring.get(0));
+        compiled = CompiledPolygon.fromRing(ring);
+
+        lats = new double[1024];
+        lngs = new double[1024];
+        for (int i = 0; i < lats.length; i++) {
+            double spread = (i % 2 == 0) ? RADIUS * 0.5 : RADIUS * 3;
+            lats[i] = CENTER_LAT + (rnd.nextDouble() * 2 - 1) * spread;
+            lngs[i] = CENTER_LNG + (rnd.nextDouble() * 2 - 1) * spread;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (lats.length - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean listAdapter() {
+        int i = next();
+        return PointInPolygon.isInside(lats[i], lngs[i], ring);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        int i = next();
+        return compiled.contains(lats[i], lngs[i]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.safekid.ai.client;
+
+import java.time.Duration;
+
+/**
+ * Art arda hata sayısına dayalı basit devre kesici.
+ *
+ * <ul>
+ *   <li>CLOSED: çağrılar geçer; {@code failureThreshold} ardışık hata devreyi açar.</li>
+ *   <li>OPEN: {@code openDuration} boyunca çağrılar hemen reddedilir.</li>
+ *   <li>HALF_OPEN: süre dolunca tek bir deneme çağrısına izin verilir; başarılıysa
+ *       devre kapanır, değilse yeniden açılır.</li>
+ * </ul>
+ *
+ * {@link #tryAcquire()} true döndüyse çağrı sonucu mutlaka {@link #onSuccess()} ya da
+ * {@link #onFailure()} ile bildirilmelidir.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+    }
+
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < openNanos) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
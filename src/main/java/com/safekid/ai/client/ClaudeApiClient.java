@@ -2,14 +2,26 @@ package com.safekid.ai.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safekid.ai.config.AnthropicProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
@@ -18,34 +30,39 @@ public class ClaudeApiClient {
 
     private final RestTemplate aiRestTemplate;
     private final ObjectMapper objectMapper;
+    private final TokenBucket anthropicRateLimiter;
+    private final CircuitBreaker anthropicCircuitBreaker;
+    private final AnthropicProperties properties;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${safekid.ai.anthropic.base-url}")
-    private String baseUrl;
-
-    @Value("${safekid.ai.anthropic.model}")
-    private String model;
-
-    @Value("${safekid.ai.anthropic.max-tokens}")
-    private int maxTokens;
+    private static final Map<String, Object> EPHEMERAL = Map.of("type", "ephemeral");
 
     public String sendMessage(String systemPrompt, String userMessage) {
         return sendMessages(systemPrompt, List.of(Map.of("role", "user", "content", userMessage)));
     }
 
     public String sendMessages(String systemPrompt, List<Map<String, Object>> messages) {
-        String url = baseUrl + "/v1/messages";
+        return sendMessages(List.of(text(systemPrompt)), messages);
+    }
+
+    /**
+     * System prompt'u içerik blokları olarak alır; {@link #cacheableText} ile işaretlenen
+     * bloklara kadar olan önek Anthropic tarafında önbelleğe alınır.
+     */
+    public String sendMessages(List<Map<String, Object>> system, List<Map<String, Object>> messages) {
+        String url = properties.getBaseUrl() + "/v1/messages";
 
         Map<String, Object> body = Map.of(
-                "model", model,
-                "max_tokens", maxTokens,
-                "system", systemPrompt,
+                "model", properties.getModel(),
+                "max_tokens", properties.getMaxTokens(),
+                "system", system,
                 "messages", messages
         );
 
+        String response = withResilience(() -> aiRestTemplate.postForObject(url, body, String.class));
         try {
-            String response = aiRestTemplate.postForObject(url, body, String.class);
-
             JsonNode root = objectMapper.readTree(response);
+            recordUsage(root.path("usage"));
             JsonNode content = root.path("content");
             if (content.isArray() && !content.isEmpty()) {
                 return content.get(0).path("text").asText();
@@ -53,8 +70,161 @@ public class ClaudeApiClient {
             log.warn("Unexpected Claude API response: {}", response);
             return "";
         } catch (Exception e) {
-            log.error("Claude API call failed", e);
+            log.error("Claude API response could not be parsed", e);
             throw new RuntimeException("Claude API call failed: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Streaming mod: metin parçaları geldikçe {@code onDelta} çağrılır.
+     * Yeniden deneme yalnızca yanıt gövdesi okunmaya başlamadan (HTTP durum hatası)
+     * yapılır; akış ortasında kopma tekrar denenmez, aksi halde parçalar çift gelirdi.
+     *
+     * @return tam asistan yanıtı
+     */
+    public String streamMessages(String systemPrompt, List<Map<String, Object>> messages,
+                                 Consumer<String> onDelta) {
+        return streamMessages(List.of(text(systemPrompt)), messages, onDelta);
+    }
+
+    public String streamMessages(List<Map<String, Object>> system, List<Map<String, Object>> messages,
+                                 Consumer<String> onDelta) {
+        String url = properties.getBaseUrl() + "/v1/messages";
+
+        Map<String, Object> body = Map.of(
+                "model", properties.getModel(),
+                "max_tokens", properties.getMaxTokens(),
+                "system", system,
+                "messages", messages,
+                "stream", true
+        );
+
+        return withResilience(() -> aiRestTemplate.execute(url, HttpMethod.POST,
+                request -> {
+                    request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                    objectMapper.writeValue(request.getBody(), body);
+                },
+                response -> ClaudeStreamReader.read(response.getBody(), objectMapper, onDelta, this::recordUsage)));
+    }
+
+    /** Düz metin içerik bloğu. */
+    public static Map<String, Object> text(String text) {
+        return Map.of("type", "text", "text", text);
+    }
+
+    /**
+     * Önbellek kırılma noktası taşıyan metin bloğu ({@code cache_control: ephemeral}).
+     * İstek başına en fazla 4 tane kullanılabilir; model minimumunun (~1024 token)
+     * altındaki önekler önbelleğe alınmaz ama hata da vermez.
+     */
+    public static Map<String, Object> cacheableText(String text) {
+        return Map.of("type", "text", "text", text, "cache_control", EPHEMERAL);
+    }
+
+    /** input / cache_read / cache_write / output token sayaçları; önbellek isabetini izlemek için. */
+    private void recordUsage(JsonNode usage) {
+        if (usage.isMissingNode()) return;
+        countTokens("input", usage.path("input_tokens"));
+        countTokens("cache_read", usage.path("cache_read_input_tokens"));
+        countTokens("cache_write", usage.path("cache_creation_input_tokens"));
+        countTokens("output", usage.path("output_tokens"));
+    }
+
+    private void countTokens(String kind, JsonNode value) {
+        if (value.canConvertToLong() && value.asLong() > 0) {
+            meterRegistry.counter("safekid.ai.anthropic.tokens", "kind", kind).increment(value.asLong());
+        }
+    }
+
+    /**
+     * Devre kesici + hız sınırı + yeniden deneme.
+     * 429/529 gibi geçici durumlar {@code retry-after} başlığına ya da jitter'lı üstel
+     * geri çekilmeye göre, çağrı süresi sınırı ({@code call-deadline}) içinde tekrar denenir.
+     * Bir deneme en fazla connect + read timeout sürer; yeniden deneme yalnızca bekleme
+     * ve tam bir deneme kalan süreye sığıyorsa başlatılır, böylece çağrı sınırı aşmaz.
+     */
+    private String withResilience(Supplier<String> call) {
+        AnthropicProperties.Retry retry = properties.getRetry();
+        long deadline = System.nanoTime() + properties.getCallDeadline().toNanos();
+        long attemptNanos = properties.getConnectTimeout().toNanos() + properties.getReadTimeout().toNanos();
+
+        for (int attempt = 0; ; attempt++) {
+            acquireRateLimit();
+            // Hız sınırı beklemesi kalan süreyi yemiş olabilir
+            if (attempt > 0 && deadline - System.nanoTime() < attemptNanos) {
+                throw new RuntimeException("Claude API call deadline exceeded before attempt " + (attempt + 1));
+            }
+            if (!anthropicCircuitBreaker.tryAcquire()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "AI servisi geçici olarak kullanılamıyor");
+            }
+
+            try {
+                String response = call.get();
+                anthropicCircuitBreaker.onSuccess();
+                return response;
+            } catch (HttpStatusCodeException e) {
+                int status = e.getStatusCode().value();
+                // 4xx (429 dahil) servis ayakta demektir; yalnızca 5xx/529 devreyi besler
+                if (status >= 500) anthropicCircuitBreaker.onFailure();
+                else anthropicCircuitBreaker.onSuccess();
+
+                if (!retry.getStatuses().contains(status) || attempt >= retry.getMaxRetries()) {
+                    log.error("Claude API call failed with status {}: {}", status, e.getResponseBodyAsString());
+                    throw new RuntimeException("Claude API call failed: " + e.getMessage(), e);
+                }
+
+                long delayNanos = retryDelayNanos(attempt, e.getResponseHeaders(), retry);
+                if (System.nanoTime() + delayNanos + attemptNanos > deadline) {
+                    throw new RuntimeException("Claude API call deadline exceeded after status " + status, e);
+                }
+                log.warn("Claude API returned {}, retrying in {} ms (attempt {}/{})",
+                        status, TimeUnit.NANOSECONDS.toMillis(delayNanos), attempt + 1, retry.getMaxRetries());
+                sleep(delayNanos);
+            } catch (RestClientException | IllegalStateException e) {
+                // Zaman aşımı, bağlantı hatası, akış içi error olayı vb.
+                anthropicCircuitBreaker.onFailure();
+                log.error("Claude API call failed", e);
+                throw new RuntimeException("Claude API call failed: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                // Çağıranın delta işleyicisinden gelen hata; servis sağlığıyla ilgisi yok
+                anthropicCircuitBreaker.onSuccess();
+                throw e;
+            }
+        }
+    }
+
+    /** {@code retry-after} (saniye) varsa onu, yoksa full-jitter üstel geri çekilmeyi kullanır. */
+    private static long retryDelayNanos(int attempt, HttpHeaders headers, AnthropicProperties.Retry retry) {
+        long maxNanos = retry.getMaxDelay().toNanos();
+        String retryAfter = headers != null ? headers.getFirst("retry-after") : null;
+        if (retryAfter != null) {
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(retryAfter.trim()) * 1000));
+                return Math.min(Math.max(nanos, 0), maxNanos);
+            } catch (NumberFormatException ignored) {
+                // HTTP-date biçimi; jitter'a düş
+            }
+        }
+        long ceiling = Math.min(maxNanos, retry.getBaseDelay().toNanos() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void acquireRateLimit() {
+        try {
+            anthropicRateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Claude API call interrupted while rate limited", e);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Claude API retry interrupted", e);
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.safekid.ai.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Messages API streaming yanıtını (text/event-stream) okur.
+ *
+ * <p>Yalnızca {@code content_block_delta / text_delta} olaylarındaki metin
+ * {@code onDelta}'ya iletilir; {@code message_stop} ile akış biter, {@code error}
+ * olayı istisnaya çevrilir. {@code message_start} ve {@code message_delta} içindeki
+ * {@code usage} alanları {@code onUsage}'a verilir; diğer olaylar yok sayılır.
+ */
+final class ClaudeStreamReader {
+
+    private ClaudeStreamReader() {}
+
+    /**
+     * @return tüm delta'ların birleşimi (tam asistan yanıtı)
+     */
+    static String read(InputStream body, ObjectMapper objectMapper,
+                       Consumer<String> onDelta, Consumer<JsonNode> onUsage) throws IOException {
+        StringBuilder full = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    // Olay sınırı
+                    if (data.length() > 0 && handle(data.toString(), objectMapper, full, onDelta, onUsage)) {
+                        return full.toString();
+                    }
+                    data.setLength(0);
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) data.append('\n');
+                    data.append(line.substring(5).stripLeading());
+                }
+                // "event:" satırı data içindeki "type" ile aynı; ayrıca okunmaz
+            }
+            if (data.length() > 0) handle(data.toString(), objectMapper, full, onDelta, onUsage);
+        }
+        return full.toString();
+    }
+
+    /** @return akış bittiyse true */
+    private static boolean handle(String json, ObjectMapper objectMapper,
+                                  StringBuilder full, Consumer<String> onDelta,
+                                  Consumer<JsonNode> onUsage) throws IOException {
+        JsonNode event = objectMapper.readTree(json);
+        switch (event.path("type").asText()) {
+            case "content_block_delta" -> {
+                JsonNode delta = event.path("delta");
+                if ("text_delta".equals(delta.path("type").asText())) {
+                    String text = delta.path("text").asText();
+                    full.append(text);
+                    onDelta.accept(text);
+                }
+            }
+            // Girdi token'ları message_start'ta, kümülatif çıktı message_delta'da gelir;
+            // çift sayılmasın diye her olaydan yalnızca kendi alanı alınır
+            case "message_start" -> {
+                if (event.path("message").path("usage") instanceof ObjectNode usage) {
+                    ObjectNode input = usage.deepCopy();
+                    input.remove("output_tokens");
+                    onUsage.accept(input);
+                }
+            }
+            case "message_delta" -> onUsage.accept(objectMapper.createObjectNode()
+                    .set("output_tokens", event.path("usage").path("output_tokens")));
+            case "message_stop" -> {
+                return true;
+            }
+            case "error" -> throw new IllegalStateException("Claude stream error: "
+                    + event.path("error").path("type").asText() + " — "
+                    + event.path("error").path("message").asText());
+            default -> {
+                // ping, content_block_start/stop
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.safekid.ai.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Basit token bucket hız sınırlayıcı.
+ *
+ * <p>{@code capacity} kadar ani istek (burst) geçer, sonra saniyede
+ * {@code refillPerSecond} token eklenir. {@link #acquire()} token'ı rezerve eder
+ * ve gerekiyorsa kilit dışında bekler; bekleyenler sırayla, birbirini aşmadan geçer.
+ * Virtual thread'lerle kullanılmak üzere tasarlandı (bekleme carrier thread'i bloklamaz).
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity >= 1 ve refillPerSecond > 0 olmalı");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /** Bir token alır; yoksa oluşana kadar bekler. */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /** Beklemeden token almayı dener. */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    private synchronized long reserve() {
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -1,23 +1,65 @@
 package com.safekid.ai.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.safekid.ai.client.CircuitBreaker;
+import com.safekid.ai.client.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
 @Configuration
 @EnableScheduling
 public class AiConfig {
 
+    /**
+     * Anthropic için RestTemplate. JDK HttpClient bağlantıları havuzlar ve
+     * HTTP/2 ile tek bağlantı üzerinden eşzamanlı istekleri çoğullar.
+     * Bağlantı ve okuma zaman aşımı olmadan yavaş bir yanıt çağıran thread'i
+     * süresiz bekletebilirdi.
+     */
     @Bean
-    RestTemplate aiRestTemplate(
-            @Value("${safekid.ai.anthropic.api-key}") String apiKey) {
+    RestTemplate aiRestTemplate(AnthropicProperties properties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+
         return new RestTemplateBuilder()
-                .defaultHeader("x-api-key", apiKey)
+                .requestFactory(() -> requestFactory)
+                .defaultHeader("x-api-key", properties.getApiKey())
                 .defaultHeader("anthropic-version", "2023-06-01")
                 .defaultHeader("Content-Type", "application/json")
                 .build();
     }
+
+    /**
+     * Anthropic API için süreç geneli istek sınırı. Tüm Claude çağrıları
+     * (cron, anomali taraması, chat) aynı kovadan token alır.
+     */
+    @Bean
+    TokenBucket anthropicRateLimiter(AnthropicProperties properties) {
+        AnthropicProperties.RateLimit rateLimit = properties.getRateLimit();
+        return new TokenBucket(rateLimit.getBurst(), rateLimit.getRequestsPerMinute() / 60.0);
+    }
+
+    @Bean
+    CircuitBreaker anthropicCircuitBreaker(AnthropicProperties properties, MeterRegistry meterRegistry) {
+        AnthropicProperties.CircuitBreaker config = properties.getCircuitBreaker();
+        CircuitBreaker breaker = new CircuitBreaker(config.getFailureThreshold(), config.getOpenDuration());
+        Gauge.builder("safekid.ai.anthropic.circuit.state", breaker, b -> b.state().ordinal())
+                .description("0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN")
+                .register(meterRegistry);
+        return breaker;
+    }
 }
@@ -0,0 +1,41 @@
+package com.safekid.ai.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periyodik anomali taraması yapılandırması.
+ *
+ * <pre>
+ * safekid.ai.anomaly-scan.interval-ms=900000
+ * safekid.ai.anomaly-scan.max-concurrent-llm-calls=4
+ * safekid.ai.anomaly-scan.max-concurrent-db-tasks=8
+ * safekid.ai.anomaly-scan.premium-only=false
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.ai.anomaly-scan")
+@Getter
+@Setter
+public class AnomalyScanProperties {
+
+    /** Tarama periyodu. Bir tarama bu süreyi aşarsa overrun sayılır. */
+    private long intervalMs = 900_000;
+
+    /** Aynı anda en fazla kaç Claude çağrısı yapılabilir. */
+    private int maxConcurrentLlmCalls = 4;
+
+    /**
+     * Aynı anda en fazla kaç çocuk için DB işi (konum okuma, kayıt) yapılabilir.
+     * Hikari havuz boyutunun altında tutulmalı.
+     */
+    private int maxConcurrentDbTasks = 8;
+
+    /**
+     * {@code true} ise yalnızca aktif aboneli ebeveynlerin çocukları taranır.
+     * Varsayılan {@code false}: eski iki taramanın birleşimi gibi tüm çocuklar taranır.
+     */
+    private boolean premiumOnly = false;
+}
@@ -0,0 +1,93 @@
+package com.safekid.ai.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Anthropic API istemci yapılandırması.
+ *
+ * <pre>
+ * safekid.ai.anthropic.api-key=${ANTHROPIC_API_KEY:}
+ * safekid.ai.anthropic.connect-timeout=5s
+ * safekid.ai.anthropic.read-timeout=60s
+ * safekid.ai.anthropic.call-deadline=120s
+ * safekid.ai.anthropic.retry.max-retries=3
+ * safekid.ai.anthropic.circuit-breaker.failure-threshold=5
+ * safekid.ai.anthropic.rate-limit.requests-per-minute=50
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.ai.anthropic")
+@Getter
+@Setter
+public class AnthropicProperties {
+
+    private String apiKey;
+
+    private String baseUrl = "https://api.anthropic.com";
+
+    private String model;
+
+    private int maxTokens = 2048;
+
+    /** TCP bağlantı kurma süresi sınırı. */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /** Tek bir denemede yanıtın tamamı için beklenecek en fazla süre. */
+    private Duration readTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Bir çağrının tüm denemeler ve beklemeler dahil en fazla süresi.
+     * Yeniden deneme, bekleme ile birlikte tam bir deneme (connect + read timeout)
+     * bu süreye sığmıyorsa başlatılmaz; ilk deneme için en az o kadar olmalıdır.
+     */
+    private Duration callDeadline = Duration.ofSeconds(120);
+
+    private Retry retry = new Retry();
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    @Getter
+    @Setter
+    public static class Retry {
+
+        /** İlk denemeden sonra en fazla kaç kez tekrar denenir. */
+        private int maxRetries = 3;
+
+        /** Üstel geri çekilmenin taban süresi; bekleme [0, base·2^n] aralığında rastgele seçilir. */
+        private Duration baseDelay = Duration.ofMillis(500);
+
+        /** Tek bir bekleme için üst sınır ({@code retry-after} dahil). */
+        private Duration maxDelay = Duration.ofSeconds(20);
+
+        /** Yeniden denenecek HTTP durumları: 429 rate limit, 529 overloaded. */
+        private List<Integer> statuses = List.of(429, 529);
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+
+        /** Art arda bu kadar hata (5xx, 529, zaman aşımı) olursa devre açılır. */
+        private int failureThreshold = 5;
+
+        /** Devre açıkken çağrılar bu süre boyunca hemen reddedilir, sonra tek deneme yapılır. */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        private double requestsPerMinute = 50;
+
+        private double burst = 5;
+    }
+}
@@ -0,0 +1,40 @@
+package com.safekid.ai.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Günlük özet toplu işi yapılandırması.
+ *
+ * <pre>
+ * safekid.ai.daily-summary-job.page-size=100
+ * safekid.ai.daily-summary-job.max-concurrency=8
+ * safekid.ai.daily-summary-job.lease-duration=15m
+ * safekid.ai.daily-summary-job.takeover-check-interval-ms=300000
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.ai.daily-summary-job")
+@Getter
+@Setter
+public class DailySummaryJobProperties {
+
+    /** Bir sayfada okunan çocuk sayısı. Checkpoint sayfa tamamlandıkça ilerler. */
+    private int pageSize = 100;
+
+    /** Aynı anda işlenen en fazla çocuk (Claude hızı ayrıca token bucket ile sınırlı). */
+    private int maxConcurrency = 8;
+
+    /**
+     * İşi yürüten düğümün sahiplik kirası; her sayfa sonunda uzatılır.
+     * Bir sayfanın işlenme süresinden uzun olmalıdır, yoksa iş başka düğüme geçer.
+     */
+    private Duration leaseDuration = Duration.ofMinutes(15);
+
+    /** Sahibi düşmüş işin devralınması için kontrol periyodu. */
+    private long takeoverCheckIntervalMs = 300_000;
+}
@@ -0,0 +1,93 @@
+package com.safekid.ai.config;
+
+import com.safekid.ai.entity.AnalysisType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Claude prompt'una girecek konum izinin analiz tipine göre sadeleştirme ayarları.
+ *
+ * <pre>
+ * safekid.ai.prompt-trace.budgets.daily-summary.max-tokens=12000
+ * safekid.ai.prompt-trace.budgets.daily-summary.tolerance-meters=30
+ * safekid.ai.prompt-trace.budgets.anomaly-detection.tolerance-meters=15
+ * </pre>
+ *
+ * Tanımlanmayan tipler ve bir tipin tanımlanmayan alanları için
+ * {@link #defaultsFor(AnalysisType)} kullanılır; yalnızca {@code max-tokens} verilen
+ * bir tip, durak parametrelerini kendi varsayılanlarından alır.
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.ai.prompt-trace")
+@Getter
+@Setter
+public class PromptTraceProperties {
+
+    /** Bir konum satırının yaklaşık token maliyeti (tarih + 2 koordinat + hız + mesafe). */
+    public static final int ESTIMATED_TOKENS_PER_ROW = 40;
+
+    private Map<AnalysisType, Budget> budgets = new EnumMap<>(AnalysisType.class);
+
+    public Budget budgetFor(AnalysisType type) {
+        Budget defaults = defaultsFor(type);
+        Budget bound = budgets.get(type);
+        return bound != null ? bound.orElse(defaults) : defaults;
+    }
+
+    public static Budget defaultsFor(AnalysisType type) {
+        return switch (type) {
+            case ANOMALY_DETECTION -> new Budget(6_000, 15, 50, 300);
+            case DAILY_SUMMARY -> new Budget(12_000, 30, 75, 600);
+            case CHAT_RESPONSE -> new Budget(8_000, 30, 75, 600);
+            case ROUTE_PREDICTION -> new Budget(4_000, 20, 50, 300);
+        };
+    }
+
+    @Getter
+    @Setter
+    public static class Budget {
+
+        // Bağlanmayan alanlar null kalır ve budgetFor'da tipin varsayılanından doldurulur
+
+        /** Konum tablosu için ayrılan en fazla token. Satır sayısı buradan türetilir. */
+        private Integer maxTokens;
+
+        /** Douglas-Peucker toleransı (m), zamana göre senkron mesafe üzerinden. */
+        private Double toleranceMeters;
+
+        /** Bu yarıçap içinde kalan ardışık noktalar bir durak adayıdır. */
+        private Double stayRadiusMeters;
+
+        /** Durak sayılması için en az süre (sn). */
+        private Long stayMinDurationSeconds;
+
+        public Budget() {}
+
+        public Budget(int maxTokens, double toleranceMeters,
+                      double stayRadiusMeters, long stayMinDurationSeconds) {
+            this.maxTokens = maxTokens;
+            this.toleranceMeters = toleranceMeters;
+            this.stayRadiusMeters = stayRadiusMeters;
+            this.stayMinDurationSeconds = stayMinDurationSeconds;
+        }
+
+        /** Tanımlanmamış alanları {@code defaults}'tan alan yeni bütçe. */
+        Budget orElse(Budget defaults) {
+            return new Budget(
+                    maxTokens != null ? maxTokens : defaults.maxTokens,
+                    toleranceMeters != null ? toleranceMeters : defaults.toleranceMeters,
+                    stayRadiusMeters != null ? stayRadiusMeters : defaults.stayRadiusMeters,
+                    stayMinDurationSeconds != null ? stayMinDurationSeconds : defaults.stayMinDurationSeconds);
+        }
+
+        /** Token bütçesine sığan satır sayısı (en az 2: ilk ve son nokta). */
+        public int maxRows() {
+            return Math.max(2, maxTokens / ESTIMATED_TOKENS_PER_ROW);
+        }
+    }
+}
@@ -11,10 +11,12 @@ import com.safekid.billing.service.SubscriptionService;
 import com.safekid.config.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -100,6 +102,19 @@ public class AiController {
         }
     }
 
+    /**
+     * {@code /chat} ile aynı sözleşme; yanıt {@code delta}/{@code done}/{@code error}
+     * SSE olayları olarak akıtılır.
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(
+            @RequestBody AiChatRequest request,
+            Authentication auth) {
+        String parentId = SecurityUtils.extractParentId(auth);
+        requirePremium(parentId);
+        return aiChatService.chatStream(parentId, request.cocukUniqueId(), request.message());
+    }
+
     @GetMapping("/alerts")
     public ResponseEntity<List<AiAlertResponse>> getAlerts(Authentication auth) {
         String parentId = SecurityUtils.extractParentId(auth);
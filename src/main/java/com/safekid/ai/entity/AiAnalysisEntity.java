@@ -10,11 +10,14 @@ import java.time.Instant;
 @Getter
 @Setter
 @Entity
-@Table(name = "ai_analysis")
+@Table(name = "ai_analysis", indexes = @Index(
+        name = "idx_ai_analysis_input_hash",
+        columnList = "cocuk_unique_id, analysis_type, input_hash"))
 public class AiAnalysisEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_analysis_seq")
+    @SequenceGenerator(name = "ai_analysis_seq", sequenceName = "ai_analysis_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -28,6 +31,10 @@ public class AiAnalysisEntity {
     @Column(name = "result_json", columnDefinition = "TEXT", nullable = false)
     private String resultJson;
 
+    /** Prompt girdisinin SHA-256 özeti; {@code AiResponseCache} anahtarı. */
+    @Column(name = "input_hash", length = 64)
+    private String inputHash;
+
     @Column(name = "acknowledged", nullable = false)
     private boolean acknowledged;
 
@@ -0,0 +1,43 @@
+package com.safekid.ai.entity;
+
+import com.safekid.parent.entity.ChildEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Çocuk başına son anomali analizinin tarama penceresi. Birden çok düğüm aynı
+ * taramayı çalıştırdığında satır koşullu upsert ile sahiplenilir; bir pencerede
+ * çocuk için Claude çağrısını ve bildirimi yalnızca bir düğüm yapar.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "ai_anomaly_scan_claim")
+public class AiAnomalyScanClaimEntity {
+
+    @Id
+    @Column(name = "cocuk_unique_id", length = 32)
+    private String cocukUniqueId;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "cocuk_unique_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private ChildEntity child;
+
+    /** {@code epochMillis / interval-ms}; düğümler aynı hizalı pencere numarasını hesaplar. */
+    @Column(name = "scan_window", nullable = false)
+    private long scanWindow;
+
+    /** Sahiplenen düğüm (teşhis için). */
+    @Column(length = 64)
+    private String owner;
+
+    @Column(name = "claimed_at", nullable = false)
+    private Instant claimedAt;
+}
@@ -14,7 +14,8 @@ import java.time.Instant;
 public class AiChatSessionEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ai_chat_session_seq")
+    @SequenceGenerator(name = "ai_chat_session_seq", sequenceName = "ai_chat_session_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
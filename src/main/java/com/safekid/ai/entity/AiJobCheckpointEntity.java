@@ -0,0 +1,59 @@
+package com.safekid.ai.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Uzun süren AI toplu işlerinin kaldığı yer. Her iş için tek satır tutulur;
+ * uygulama yeniden başlarsa iş {@code lastChildId}'den sonrasıyla devam eder.
+ * Satır koşullu UPDATE ile sahiplenilir; bkz. {@code AiJobCheckpointRepository}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "ai_job_checkpoint")
+public class AiJobCheckpointEntity {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    /** İşin ait olduğu gün (ör. günlük özetin tarihi). */
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    /** Tamamen işlenmiş son sayfanın son çocuk id'si (keyset imleci). */
+    @Column(name = "last_child_id", length = 32)
+    private String lastChildId;
+
+    @Column(nullable = false)
+    private int processed;
+
+    @Column(nullable = false)
+    private int failed;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JobStatus status;
+
+    /** İşi yürüten düğüm; yalnızca bu düğüm ilerleme yazabilir. */
+    @Column(length = 64)
+    private String owner;
+
+    /** Sahipliğin geçerli olduğu son an; her sayfada uzatılır, dolarsa başka düğüm devralır. */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+}
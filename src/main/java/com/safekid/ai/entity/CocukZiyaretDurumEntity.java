@@ -0,0 +1,65 @@
+package com.safekid.ai.entity;
+
+import com.safekid.parent.entity.ChildEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Çocuk başına durak tespiti durumu (henüz ziyaret eşiğini geçmemiş küme dahil).
+ * Konumlar hangi düğüme düşerse düşsün satır kilitlenerek sırayla işlenir;
+ * böylece düğümler aynı ziyareti ayrı ayrı açıp kapatmaz.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "cocuk_ziyaret_durum")
+public class CocukZiyaretDurumEntity {
+
+    @Id
+    @Column(name = "cocuk_unique_id", length = 32)
+    private String cocukUniqueId;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "cocuk_unique_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private ChildEntity child;
+
+    /** İlk işlenen konumun zamanı; bundan önceki aralıklar için kayıtlı ziyaret yoktur. */
+    @Column(name = "tracked_since", nullable = false)
+    private Instant trackedSince;
+
+    /** 0 → henüz konum işlenmedi, küme yok. */
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Column(name = "anchor_lat")
+    private Double anchorLat;
+
+    @Column(name = "anchor_lng")
+    private Double anchorLng;
+
+    @Column(name = "sum_lat")
+    private Double sumLat;
+
+    @Column(name = "sum_lng")
+    private Double sumLng;
+
+    @Column(name = "first_at")
+    private Instant firstAt;
+
+    @Column(name = "last_at")
+    private Instant lastAt;
+
+    /** Kümenin yazılmış açık ziyareti ({@code cocuk_ziyaret.id}); yoksa {@code null}. */
+    @Column(name = "open_visit_id")
+    private Long openVisitId;
+
+    @Column(name = "last_flushed_exit_at")
+    private Instant lastFlushedExitAt;
+}
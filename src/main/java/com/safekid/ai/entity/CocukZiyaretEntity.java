@@ -0,0 +1,49 @@
+package com.safekid.ai.entity;
+
+import com.safekid.parent.entity.ChildEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Konum akışından artımlı olarak çıkarılan ziyaret (durak).
+ * {@code open=true} olan kayıt çocuğun hâlâ bulunduğu yerdir; çıkış zamanı
+ * periyodik olarak güncellenir.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "cocuk_ziyaret")
+public class CocukZiyaretEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "cocuk_unique_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private ChildEntity child;
+
+    @Column(nullable = false)
+    private double lat;
+
+    @Column(nullable = false)
+    private double lng;
+
+    @Column(name = "entered_at", nullable = false)
+    private Instant enteredAt;
+
+    @Column(name = "exited_at", nullable = false)
+    private Instant exitedAt;
+
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Column(name = "is_open", nullable = false)
+    private boolean open;
+}
@@ -0,0 +1,6 @@
+package com.safekid.ai.entity;
+
+public enum JobStatus {
+    RUNNING,
+    COMPLETED
+}
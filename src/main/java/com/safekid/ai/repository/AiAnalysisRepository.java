@@ -5,6 +5,7 @@ import com.safekid.ai.entity.AnalysisType;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface AiAnalysisRepository extends JpaRepository<AiAnalysisEntity, Long> {
 
@@ -13,4 +14,7 @@ public interface AiAnalysisRepository extends JpaRepository<AiAnalysisEntity, Lo
 
     List<AiAnalysisEntity> findByChild_Parent_EbeveynUniqueIdAndAcknowledgedFalseOrderByCreatedAtDesc(
             String parentId);
+
+    Optional<AiAnalysisEntity> findFirstByChild_CocukUniqueIdAndAnalysisTypeAndInputHashOrderByCreatedAtDesc(
+            String childId, AnalysisType type, String inputHash);
 }
@@ -0,0 +1,28 @@
+package com.safekid.ai.repository;
+
+import com.safekid.ai.entity.AiAnomalyScanClaimEntity;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface AiAnomalyScanClaimRepository extends JpaRepository<AiAnomalyScanClaimEntity, String> {
+
+    /**
+     * Çocuğu verilen pencere için sahiplenir. Çocuk bu ya da daha yeni bir pencerede
+     * başka bir düğüm (veya bu düğüm) tarafından zaten sahiplenildiyse 0 döner.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO ai_anomaly_scan_claim (cocuk_unique_id, scan_window, owner, claimed_at)
+            VALUES (:childId, :window, :owner, now())
+            ON CONFLICT (cocuk_unique_id) DO UPDATE
+               SET scan_window = EXCLUDED.scan_window, owner = EXCLUDED.owner, claimed_at = now()
+             WHERE ai_anomaly_scan_claim.scan_window < EXCLUDED.scan_window
+            """, nativeQuery = true)
+    int claim(@Param("childId") String childId,
+              @Param("window") long window,
+              @Param("owner") String owner);
+}
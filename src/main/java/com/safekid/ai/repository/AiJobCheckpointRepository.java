@@ -0,0 +1,75 @@
+package com.safekid.ai.repository;
+
+import com.safekid.ai.entity.AiJobCheckpointEntity;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+
+/**
+ * İş satırı aynı zamanda düğümler arası sahiplik kaydıdır: bir işi yalnızca
+ * {@code owner} olan ve kirası ({@code lease_until}) dolmamış düğüm yürütür.
+ * Tüm süre karşılaştırmaları veritabanı saatiyle ({@code now()}) yapılır.
+ */
+public interface AiJobCheckpointRepository extends JpaRepository<AiJobCheckpointEntity, String> {
+
+    /**
+     * Verilen gün için işi başlatır: satır yoksa ekler, önceki güne aitse sıfırlar.
+     * O günün işi zaten başlatılmış ya da tamamlanmışsa 0 döner.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO ai_job_checkpoint
+                   (job_name, run_date, processed, failed, status, owner, lease_until, updated_at)
+            VALUES (:job, :runDate, 0, 0, 'RUNNING', :owner,
+                    now() + make_interval(secs => :leaseSeconds), now())
+            ON CONFLICT (job_name) DO UPDATE
+               SET run_date = EXCLUDED.run_date, last_child_id = NULL,
+                   processed = 0, failed = 0, status = 'RUNNING',
+                   owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until, updated_at = now()
+             WHERE ai_job_checkpoint.run_date < EXCLUDED.run_date
+            """, nativeQuery = true)
+    int claimNewRun(@Param("job") String job,
+                    @Param("runDate") LocalDate runDate,
+                    @Param("owner") String owner,
+                    @Param("leaseSeconds") long leaseSeconds);
+
+    /** Kirası dolmuş (sahibi düşmüş) RUNNING işi devralır. Devralınacak iş yoksa 0 döner. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE ai_job_checkpoint
+               SET owner = :owner, lease_until = now() + make_interval(secs => :leaseSeconds),
+                   updated_at = now()
+             WHERE job_name = :job AND status = 'RUNNING'
+               AND (lease_until IS NULL OR lease_until < now())
+            """, nativeQuery = true)
+    int claimInterrupted(@Param("job") String job,
+                         @Param("owner") String owner,
+                         @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * İlerlemeyi yazar ve kirayı uzatır. İş başka düğüme geçmişse 0 döner;
+     * çağıran bu durumda işi bırakmalıdır.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE ai_job_checkpoint
+               SET last_child_id = :lastChildId, processed = :processed, failed = :failed,
+                   status = :status, lease_until = now() + make_interval(secs => :leaseSeconds),
+                   updated_at = now()
+             WHERE job_name = :job AND owner = :owner
+            """, nativeQuery = true)
+    int saveProgress(@Param("job") String job,
+                     @Param("owner") String owner,
+                     @Param("lastChildId") String lastChildId,
+                     @Param("processed") int processed,
+                     @Param("failed") int failed,
+                     @Param("status") String status,
+                     @Param("leaseSeconds") long leaseSeconds);
+}
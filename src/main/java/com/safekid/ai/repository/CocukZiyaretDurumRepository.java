@@ -0,0 +1,32 @@
+package com.safekid.ai.repository;
+
+import com.safekid.ai.entity.CocukZiyaretDurumEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface CocukZiyaretDurumRepository extends JpaRepository<CocukZiyaretDurumEntity, String> {
+
+    /** Satır yoksa boş durumla oluşturur; eşzamanlı düğümlerden yalnızca biri ekler. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO cocuk_ziyaret_durum (cocuk_unique_id, tracked_since, point_count)
+            VALUES (:childId, :trackedSince, 0)
+            ON CONFLICT (cocuk_unique_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("childId") String childId, @Param("trackedSince") Instant trackedSince);
+
+    /** Transaction sonuna kadar satırı kilitler; aynı çocuğun konumları sırayla işlenir. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM CocukZiyaretDurumEntity d WHERE d.cocukUniqueId = :childId")
+    Optional<CocukZiyaretDurumEntity> findForUpdate(@Param("childId") String childId);
+
+    @Query("SELECT d.trackedSince FROM CocukZiyaretDurumEntity d WHERE d.cocukUniqueId = :childId")
+    Optional<Instant> findTrackedSince(@Param("childId") String childId);
+}
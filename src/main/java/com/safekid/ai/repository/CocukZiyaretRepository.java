@@ -0,0 +1,44 @@
+package com.safekid.ai.repository;
+
+import com.safekid.ai.entity.CocukZiyaretEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface CocukZiyaretRepository extends JpaRepository<CocukZiyaretEntity, Long> {
+
+    Optional<CocukZiyaretEntity> findFirstByChild_CocukUniqueIdAndOpenTrueOrderByEnteredAtDesc(String childId);
+
+    /** [start, end) aralığıyla kesişen ziyaretler, giriş zamanına göre. */
+    @Query("""
+            SELECT z FROM CocukZiyaretEntity z
+            WHERE z.child.cocukUniqueId = :childId
+              AND z.exitedAt >= :start
+              AND z.enteredAt < :end
+            ORDER BY z.enteredAt ASC
+            """)
+    List<CocukZiyaretEntity> findOverlapping(@Param("childId") String childId,
+                                             @Param("start") Instant start,
+                                             @Param("end") Instant end);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE CocukZiyaretEntity z
+            SET z.lat = :lat, z.lng = :lng, z.exitedAt = :exitedAt,
+                z.pointCount = :pointCount, z.open = :open
+            WHERE z.id = :id
+            """)
+    int updateVisit(@Param("id") Long id,
+                    @Param("lat") double lat,
+                    @Param("lng") double lng,
+                    @Param("exitedAt") Instant exitedAt,
+                    @Param("pointCount") int pointCount,
+                    @Param("open") boolean open);
+}
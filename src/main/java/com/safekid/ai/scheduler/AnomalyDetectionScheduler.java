@@ -1,52 +1,227 @@
 package com.safekid.ai.scheduler;
 
+import com.safekid.ai.config.AnomalyScanProperties;
+import com.safekid.ai.repository.AiAnomalyScanClaimRepository;
+import com.safekid.ai.service.AnomalyCandidate;
 import com.safekid.ai.service.AnomalyDetectionService;
-import com.safekid.auth.entity.ParentEntity;
 import com.safekid.billing.entity.SubscriptionStatus;
-import com.safekid.billing.repository.SubscriptionRepository;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Çocuklar için periyodik anomali taraması. Uygulamadaki tek periyodik anomali
+ * taramasıdır; varsayılan olarak tüm çocukları kapsar, {@code premium-only} ile
+ * aktif aboneli ebeveynlerin çocuklarıyla sınırlanabilir.
+ *
+ * <p>Akış: uygun çocuklar tek sorguda seçilir → yerel ön-filtre → Claude
+ * → kayıt + bildirim. Her çocuk bir virtual thread'de işlenir. DB işleri ve Claude çağrıları
+ * ayrı semaphore'larla sınırlanır; böylece Hikari havuzu ve Anthropic API
+ * tarama boyunca aşırı yüklenmez.
+ *
+ * <p>Bir çocuk aynı tarama penceresi ({@code interval-ms} hizalı) içinde en
+ * fazla bir kez analiz edilir; gecikmiş veya üst üste binen tetiklemeler ve
+ * aynı taramayı çalıştıran diğer düğümler aynı çocuğu ikinci kez analiz etmez.
+ * Claude çağrısından önce (çocuk, pencere) {@code ai_anomaly_scan_claim}'de koşullu
+ * upsert ile sahiplenilir; yerel harita yalnızca bu düğümün tekrarını DB'ye
+ * gitmeden eleyen hızlı yoldur.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class AnomalyDetectionScheduler {
 
-    private final SubscriptionRepository subscriptionRepository;
+    private static final int PAGE_SIZE = 500;
+
     private final ChildRepository childRepository;
     private final AnomalyDetectionService anomalyDetectionService;
+    private final AnomalyScanProperties properties;
+    private final AiAnomalyScanClaimRepository claimRepository;
+    /** Bu sürecin sahiplik kimliği ({@code ai_anomaly_scan_claim.owner}). */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Semaphore llmPermits;
+    private final Semaphore dbPermits;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    /** cocukUniqueId → son tarandığı pencere numarası */
+    private final Map<String, Long> lastScannedWindow = new ConcurrentHashMap<>();
+
+    private final Timer scanDuration;
+    private final Counter childrenScanned;
+    private final Counter llmCalls;
+    private final Counter overruns;
+    private final Counter claimedElsewhere;
+
+    public AnomalyDetectionScheduler(ChildRepository childRepository,
+                                     AnomalyDetectionService anomalyDetectionService,
+                                     AnomalyScanProperties properties,
+                                     AiAnomalyScanClaimRepository claimRepository,
+                                     MeterRegistry meterRegistry) {
+        this.childRepository = childRepository;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.properties = properties;
+        this.claimRepository = claimRepository;
+        this.llmPermits = new Semaphore(properties.getMaxConcurrentLlmCalls(), true);
+        this.dbPermits = new Semaphore(properties.getMaxConcurrentDbTasks(), true);
+
+        this.scanDuration = Timer.builder("safekid.ai.anomaly.scan.duration")
+                .description("Bir anomali taramasının toplam süresi")
+                .register(meterRegistry);
+        this.childrenScanned = Counter.builder("safekid.ai.anomaly.scan.children")
+                .description("Taranan çocuk sayısı")
+                .register(meterRegistry);
+        this.llmCalls = Counter.builder("safekid.ai.anomaly.scan.llm.calls")
+                .description("Tarama sırasında yapılan Claude çağrısı sayısı")
+                .register(meterRegistry);
+        this.overruns = Counter.builder("safekid.ai.anomaly.scan.overruns")
+                .description("Periyodu aşan veya önceki tarama sürerken tetiklenen taramalar")
+                .register(meterRegistry);
+        this.claimedElsewhere = Counter.builder("safekid.ai.anomaly.scan.claimed-elsewhere")
+                .description("Pencerede başka düğümün sahiplendiği için analiz edilmeyen çocuklar")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${safekid.ai.anomaly-scan.interval-ms:900000}")
+    public void scheduledAnomalyScan() {
+        if (!running.compareAndSet(false, true)) {
+            overruns.increment();
+            log.warn("Önceki anomali taraması hâlâ sürüyor, bu tetikleme atlandı.");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            log.info("Anomali tarama başladı — kapsam: {}",
+                    properties.isPremiumOnly() ? "aktif aboneli çocuklar" : "tüm çocuklar");
 
-    @Scheduled(fixedRate = 15, timeUnit = TimeUnit.MINUTES)
-    public void checkPremiumSubscribersAnomalies() {
-        List<ParentEntity> premiumParents =
-                subscriptionRepository.findParentsWithStatus(SubscriptionStatus.ACTIVE);
-
-        log.info("Anomali tarama başladı — aktif aboneli ebeveyn sayısı: {}", premiumParents.size());
-
-        for (ParentEntity parent : premiumParents) {
-            List<ChildEntity> children =
-                    childRepository.findAllByParent_EbeveynUniqueId(parent.getEbeveynUniqueId());
-
-            for (ChildEntity child : children) {
-                try {
-                    anomalyDetectionService.checkAnomaly(
-                            parent.getEbeveynUniqueId(),
-                            child.getCocukUniqueId()
-                    );
-                } catch (Exception e) {
-                    log.error("Anomali kontrolü başarısız — çocuk: {}, hata: {}",
-                            child.getCocukUniqueId(), e.getMessage());
-                }
+            long window = System.currentTimeMillis() / properties.getIntervalMs();
+            Set<String> eligible = new HashSet<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                forEachEligibleChild(child -> {
+                    eligible.add(child.getCocukUniqueId());
+                    if (!tryClaim(child.getCocukUniqueId(), window)) return;
+                    executor.submit(() -> scanChild(child, window, scanned, calls));
+                });
             }
+            // Aboneliği biten / silinen çocukların kayıtlarını temizle
+            lastScannedWindow.keySet().retainAll(eligible);
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            scanDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            if (elapsedMs > properties.getIntervalMs()) {
+                overruns.increment();
+                log.warn("Anomali taraması periyodu aştı: {} ms > {} ms", elapsedMs, properties.getIntervalMs());
+            }
+            running.set(false);
+            log.info("Anomali tarama tamamlandı — {} ms, {} çocuk, {} Claude çağrısı.",
+                    elapsedMs, scanned.get(), calls.get());
         }
+    }
 
-        log.info("Anomali tarama tamamlandı.");
+    /**
+     * Taranacak çocuklar. Varsayılan olarak tüm çocuklar (keyset sayfalarıyla);
+     * {@code premium-only=true} ise yalnızca aktif aboneli ebeveynlerin çocukları.
+     */
+    private void forEachEligibleChild(Consumer<ChildEntity> action) {
+        if (properties.isPremiumOnly()) {
+            childRepository.findAllWithParentBySubscriptionStatus(SubscriptionStatus.ACTIVE).forEach(action);
+            return;
+        }
+        String afterId = "";
+        while (true) {
+            List<ChildEntity> page = childRepository.findPageWithParentAfter(afterId, Limit.of(PAGE_SIZE));
+            page.forEach(action);
+            if (page.size() < PAGE_SIZE) return;
+            afterId = page.getLast().getCocukUniqueId();
+        }
+    }
+
+    /**
+     * Yerel hızlı yol: çocuk bu düğümde bu pencerede henüz taranmadıysa pencereyi
+     * işaretler ve true döner. Düğümler arası tekillik {@link #claimWindow} ile sağlanır.
+     */
+    private boolean tryClaim(String cocukUniqueId, long window) {
+        boolean[] claimed = {false};
+        lastScannedWindow.compute(cocukUniqueId, (id, last) -> {
+            if (last != null && last >= window) return last;
+            claimed[0] = true;
+            return window;
+        });
+        return claimed[0];
+    }
+
+    /** Çocuğu bu pencere için DB'de sahiplenir; başka düğüm almışsa false. */
+    private boolean claimWindow(ChildEntity child, long window) throws InterruptedException {
+        dbPermits.acquire();
+        try {
+            if (claimRepository.claim(child.getCocukUniqueId(), window, nodeId) == 1) return true;
+        } finally {
+            dbPermits.release();
+        }
+        claimedElsewhere.increment();
+        return false;
+    }
+
+    private void scanChild(ChildEntity child, long window, AtomicInteger scanned, AtomicInteger calls) {
+        try {
+            Optional<AnomalyCandidate> candidate;
+            dbPermits.acquire();
+            try {
+                candidate = anomalyDetectionService.prefilter(child);
+            } finally {
+                dbPermits.release();
+            }
+            scanned.incrementAndGet();
+            childrenScanned.increment();
+
+            if (candidate.isEmpty()) return;
+            // Ön-filtre ucuz ve salt okunur; sahiplik yalnızca Claude'a gidecek çocuklar için alınır
+            if (!claimWindow(child, window)) return;
+
+            String aiResponse;
+            llmPermits.acquire();
+            try {
+                aiResponse = anomalyDetectionService.analyze(candidate.get());
+            } finally {
+                llmPermits.release();
+            }
+            calls.incrementAndGet();
+            llmCalls.increment();
+
+            dbPermits.acquire();
+            try {
+                anomalyDetectionService.publish(candidate.get(), aiResponse);
+            } finally {
+                dbPermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Anomali kontrolü başarısız — çocuk: {}, hata: {}",
+                    child.getCocukUniqueId(), e.getMessage());
+        }
     }
 }
@@ -0,0 +1,251 @@
+package com.safekid.ai.scheduler;
+
+import com.safekid.ai.config.DailySummaryJobProperties;
+import com.safekid.ai.entity.AiJobCheckpointEntity;
+import com.safekid.ai.entity.JobStatus;
+import com.safekid.ai.repository.AiJobCheckpointRepository;
+import com.safekid.ai.service.DailySummaryService;
+import com.safekid.notification.FcmService;
+import com.safekid.parent.entity.ChildEntity;
+import com.safekid.parent.repository.ChildRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 21:00 günlük özet toplu işi.
+ *
+ * <p>Çocuklar parent'ları ile birlikte keyset sayfalarıyla okunur, her sayfa
+ * virtual thread'lerde {@code max-concurrency} sınırıyla işlenir. Claude çağrıları
+ * ayrıca süreç geneli token bucket'tan geçer. Her sayfa bitince
+ * {@code ai_job_checkpoint} güncellenir; uygulama iş sırasında yeniden başlarsa
+ * açılışta son tamamlanan sayfadan devam edilir.
+ *
+ * <p>Birden fazla düğümde yalnızca checkpoint satırını koşullu UPDATE ile sahiplenen
+ * düğüm işi yürütür (FCM bildirimleri bir kez gider). Sahiplik kiralıdır ve her
+ * sayfada uzatılır; sahibi düşen iş kira dolunca başka bir düğüm tarafından devralınır.
+ * İş Spring'in ortak scheduler thread'inde değil, kendi executor'ında çalışır.
+ *
+ * <p>Yarım kalan sayfadaki çocuklar tekrar işlenir; aynı veri için özet
+ * {@code AiResponseCache}'ten gelir, Claude yeniden çağrılmaz.
+ */
+@Slf4j
+@Component
+public class DailySummaryScheduler {
+
+    static final String JOB_NAME = "daily-summary";
+    private static final ZoneId TZ = ZoneId.of("Europe/Istanbul");
+
+    private final ChildRepository childRepository;
+    private final DailySummaryService dailySummaryService;
+    private final AiJobCheckpointRepository checkpointRepository;
+    private final FcmService fcmService;
+    private final DailySummaryJobProperties properties;
+
+    /** Bu sürecin sahiplik kimliği ({@code ai_job_checkpoint.owner}). */
+    private final String nodeId = UUID.randomUUID().toString();
+    /** Saatler süren iş, diğer zamanlanmış görevleri bekletmemek için burada çalışır. */
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("daily-summary-job").factory());
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+
+    private final Timer jobDuration;
+    private final Timer childDuration;
+    private final Counter succeeded;
+    private final Counter failed;
+
+    public DailySummaryScheduler(ChildRepository childRepository,
+                                 DailySummaryService dailySummaryService,
+                                 AiJobCheckpointRepository checkpointRepository,
+                                 FcmService fcmService,
+                                 DailySummaryJobProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.childRepository = childRepository;
+        this.dailySummaryService = dailySummaryService;
+        this.checkpointRepository = checkpointRepository;
+        this.fcmService = fcmService;
+        this.properties = properties;
+
+        this.jobDuration = Timer.builder("safekid.ai.summary.job.duration")
+                .description("Günlük özet toplu işinin süresi")
+                .register(meterRegistry);
+        this.childDuration = Timer.builder("safekid.ai.summary.child.duration")
+                .description("Tek çocuk için özet süresi")
+                .register(meterRegistry);
+        this.succeeded = Counter.builder("safekid.ai.summary.children")
+                .tag("result", "success").register(meterRegistry);
+        this.failed = Counter.builder("safekid.ai.summary.children")
+                .tag("result", "failed").register(meterRegistry);
+        Gauge.builder("safekid.ai.summary.job.total", total, AtomicLong::get)
+                .description("Çalışan işteki toplam çocuk sayısı")
+                .register(meterRegistry);
+        Gauge.builder("safekid.ai.summary.job.done", done, AtomicLong::get)
+                .description("Çalışan işte tamamlanan çocuk sayısı")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${safekid.ai.daily-summary-cron}", zone = "Europe/Istanbul")
+    public void scheduledDailySummary() {
+        if (running.get()) {
+            log.warn("Önceki günlük özet işi hâlâ sürüyor, bu tetikleme atlandı.");
+            return;
+        }
+        LocalDate today = LocalDate.now(TZ);
+        if (checkpointRepository.claimNewRun(JOB_NAME, today, nodeId, leaseSeconds()) == 0
+                && checkpointRepository.claimInterrupted(JOB_NAME, nodeId, leaseSeconds()) == 0) {
+            log.info("Günlük özet {} için başka düğümde çalışıyor ya da tamamlanmış, atlanıyor.", today);
+            return;
+        }
+        submit();
+    }
+
+    /**
+     * Açılışta ve periyodik olarak, sahibi düşmüş (kirası dolmuş) yarım işi devralır.
+     * Tarih checkpoint'ten alınır; gece yarısını geçmiş olsa bile aynı gün özetlenir.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        resumeIfInterrupted();
+    }
+
+    @Scheduled(fixedDelayString = "${safekid.ai.daily-summary-job.takeover-check-interval-ms:300000}",
+            initialDelayString = "${safekid.ai.daily-summary-job.takeover-check-interval-ms:300000}")
+    public void resumeIfInterrupted() {
+        if (running.get()) return;
+        if (checkpointRepository.claimInterrupted(JOB_NAME, nodeId, leaseSeconds()) == 0) return;
+        submit();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Checkpoint RUNNING kalır; kira dolunca bu ya da başka bir düğüm devralır
+        jobExecutor.shutdownNow();
+    }
+
+    /** Sahiplenilen işi ortak scheduler thread'ini tutmadan kendi thread'inde çalıştırır. */
+    private void submit() {
+        AiJobCheckpointEntity checkpoint = checkpointRepository.findById(JOB_NAME).orElseThrow();
+        log.info("Günlük özet işi sahiplenildi — tarih: {}, son çocuk: {}",
+                checkpoint.getRunDate(), checkpoint.getLastChildId());
+        jobExecutor.execute(() -> run(checkpoint));
+    }
+
+    private long leaseSeconds() {
+        return properties.getLeaseDuration().toSeconds();
+    }
+
+    private void run(AiJobCheckpointEntity checkpoint) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Günlük özet işi zaten çalışıyor.");
+            return;
+        }
+
+        Timer.Sample sample = Timer.start();
+        LocalDate date = checkpoint.getRunDate();
+        String cursor = checkpoint.getLastChildId() != null ? checkpoint.getLastChildId() : "";
+        total.set(childRepository.count());
+        done.set(checkpoint.getProcessed() + checkpoint.getFailed());
+        Semaphore permits = new Semaphore(properties.getMaxConcurrency());
+
+        log.info("Günlük özet başladı — tarih: {}, toplam çocuk: {}, başlangıç: '{}'",
+                date, total.get(), cursor);
+        try {
+            while (true) {
+                List<ChildEntity> page = childRepository.findPageWithParentAfter(
+                        cursor, Limit.of(properties.getPageSize()));
+                if (page.isEmpty()) break;
+
+                AtomicInteger pageOk = new AtomicInteger();
+                AtomicInteger pageFailed = new AtomicInteger();
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (ChildEntity child : page) {
+                        executor.submit(() -> summarizeChild(child, date, permits, pageOk, pageFailed));
+                    }
+                }
+
+                cursor = page.getLast().getCocukUniqueId();
+                checkpoint.setLastChildId(cursor);
+                checkpoint.setProcessed(checkpoint.getProcessed() + pageOk.get());
+                checkpoint.setFailed(checkpoint.getFailed() + pageFailed.get());
+                if (!saveProgress(checkpoint)) return;
+
+                if (page.size() < properties.getPageSize()) break;
+            }
+
+            checkpoint.setStatus(JobStatus.COMPLETED);
+            if (!saveProgress(checkpoint)) return;
+            log.info("Günlük özet tamamlandı — tarih: {}, başarılı: {}, hatalı: {}",
+                    date, checkpoint.getProcessed(), checkpoint.getFailed());
+        } catch (Exception e) {
+            // Checkpoint RUNNING kalır; kira dolunca kaldığı sayfadan devralınır
+            log.error("Günlük özet işi yarıda kaldı — son çocuk: {}, hata: {}", cursor, e.getMessage());
+        } finally {
+            sample.stop(jobDuration);
+            running.set(false);
+        }
+    }
+
+    /** İlerlemeyi yazar; iş başka düğüme geçmişse false döner ve iş bırakılır. */
+    private boolean saveProgress(AiJobCheckpointEntity checkpoint) {
+        int updated = checkpointRepository.saveProgress(JOB_NAME, nodeId,
+                checkpoint.getLastChildId(), checkpoint.getProcessed(), checkpoint.getFailed(),
+                checkpoint.getStatus().name(), leaseSeconds());
+        if (updated == 0) {
+            log.warn("Günlük özet işinin sahipliği başka düğüme geçti, bu düğümde durduruluyor — son çocuk: {}",
+                    checkpoint.getLastChildId());
+            return false;
+        }
+        return true;
+    }
+
+    private void summarizeChild(ChildEntity child, LocalDate date, Semaphore permits,
+                                AtomicInteger pageOk, AtomicInteger pageFailed) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pageFailed.incrementAndGet();
+            return;
+        }
+        try {
+            childDuration.record(() -> { dailySummaryService.summarize(child, date); });
+            fcmService.sendPush(
+                    child.getParent().getFcmToken(),
+                    child.getCocukAdi() + " günlük özet",
+                    "Bugünkü hareket özeti hazırlandı."
+            );
+            pageOk.incrementAndGet();
+            succeeded.increment();
+        } catch (Exception e) {
+            pageFailed.incrementAndGet();
+            failed.increment();
+            log.error("Daily summary failed for child {}: {}", child.getCocukUniqueId(), e.getMessage());
+        } finally {
+            permits.release();
+            done.incrementAndGet();
+        }
+    }
+}
@@ -5,8 +5,6 @@ import com.safekid.ai.dto.AiChatResponse;
 import com.safekid.ai.entity.AiChatSessionEntity;
 import com.safekid.ai.entity.ChatRole;
 import com.safekid.ai.repository.AiChatSessionRepository;
-import com.safekid.child.entity.CocukKonumEntity;
-import com.safekid.child.repository.CocukKonumRepository;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
 import lombok.RequiredArgsConstructor;
@@ -14,13 +12,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
@@ -28,10 +25,12 @@ import java.util.Map;
 public class AiChatService {
 
     private final ClaudeApiClient claudeApiClient;
-    private final CocukKonumRepository konumRepository;
     private final ChildRepository childRepository;
     private final AiChatSessionRepository chatSessionRepository;
-    private final LocationDataCollector dataCollector;
+    private final ChatContextCache contextCache;
+
+    /** Streaming yanıt için üst sınır; call-deadline'dan biraz uzun tutulur. */
+    private static final long STREAM_TIMEOUT_MS = 180_000L;
 
     private static final String SYSTEM_PROMPT = """
             Sen SafeKid çocuk takip uygulamasının AI asistanısın.
@@ -47,20 +46,80 @@ public class AiChatService {
             Her zaman Türkçe yanıt ver.
             """;
 
+    /** Sabit system prompt; istekler arasında önbellekli önek olarak gönderilir. */
+    private static final List<Map<String, Object>> SYSTEM =
+            List.of(ClaudeApiClient.cacheableText(SYSTEM_PROMPT));
+
     public AiChatResponse chat(String parentId, String cocukUniqueId, String userMessage) {
-        ChildEntity child = childRepository
+        ChildEntity child = findChild(parentId, cocukUniqueId);
+        List<Map<String, Object>> messages = buildMessages(parentId, child, userMessage);
+
+        String aiResponse = claudeApiClient.sendMessages(SYSTEM, messages);
+
+        saveTurn(parentId, child, userMessage, aiResponse);
+        return new AiChatResponse(cocukUniqueId, aiResponse);
+    }
+
+    /**
+     * {@link #chat} ile aynı bağlamı kurar ama yanıtı token token SSE ile iletir.
+     * Olaylar: {@code delta {text}} (parça), {@code done {cocukUniqueId, response}} (tam yanıt),
+     * {@code error {error}}. Çocuk doğrulaması senkron yapılır, 404 emitter açılmadan döner.
+     * İstemci akış ortasında koparsa iletim durur ama yanıt okunmaya devam eder ve kaydedilir.
+     */
+    public SseEmitter chatStream(String parentId, String cocukUniqueId, String userMessage) {
+        ChildEntity child = findChild(parentId, cocukUniqueId);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onCompletion(() -> clientGone.set(true));
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(e -> clientGone.set(true));
+
+        Thread.ofVirtual().name("ai-chat-stream-" + cocukUniqueId).start(() -> {
+            try {
+                List<Map<String, Object>> messages = buildMessages(parentId, child, userMessage);
+
+                String aiResponse = claudeApiClient.streamMessages(SYSTEM, messages,
+                        text -> send(emitter, clientGone, "delta", Map.of("text", text)));
+
+                saveTurn(parentId, child, userMessage, aiResponse);
+                send(emitter, clientGone, "done", new AiChatResponse(cocukUniqueId, aiResponse));
+                if (!clientGone.get()) emitter.complete();
+            } catch (Exception e) {
+                log.error("AI chat stream failed for child {}", cocukUniqueId, e);
+                String error = e instanceof ResponseStatusException rse ? rse.getReason() : "AI yanıtı alınamadı";
+                send(emitter, clientGone, "error", Map.of("error", error));
+                if (!clientGone.get()) emitter.complete();
+            }
+        });
+
+        return emitter;
+    }
+
+    /** Kopmuş istemciye yazma hatası akışı (ve Claude okumasını) kesmesin. */
+    private static void send(SseEmitter emitter, AtomicBoolean clientGone, String name, Object data) {
+        if (clientGone.get()) return;
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (Exception e) {
+            clientGone.set(true);
+        }
+    }
+
+    private ChildEntity findChild(String parentId, String cocukUniqueId) {
+        return childRepository
                 .findByCocukUniqueIdAndParent_EbeveynUniqueId(cocukUniqueId, parentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Çocuk bulunamadı"));
+    }
 
-        // Get recent location data for context
-        Instant oneDayAgo = Instant.now().minus(1, ChronoUnit.DAYS);
-        List<CocukKonumEntity> recentLocations =
-                konumRepository.findByChild_CocukUniqueIdAndRecordedAtAfterOrderByRecordedAtAsc(
-                        cocukUniqueId, oneDayAgo);
-
-        String locationContext = recentLocations.isEmpty()
-                ? "Son 24 saatte konum verisi yok."
-                : dataCollector.formatLocationsForPrompt(recentLocations);
+    /**
+     * Mesaj listesi önbelleğe uygun sırayla kurulur: önce (yalnızca yeni konum gelince
+     * değişen) konum bağlamı, sonra geçmiş, en sonda yeni soru. Bağlam bloğu ve son
+     * geçmiş mesajı cache_control taşır; takip soruları bu öneki yeniden işletmez.
+     */
+    private List<Map<String, Object>> buildMessages(String parentId, ChildEntity child, String userMessage) {
+        String cocukUniqueId = child.getCocukUniqueId();
+        ChatContextCache.ChatContext context = contextCache.get(parentId, cocukUniqueId);
 
         // Get chat history (last 20 messages, reversed to chronological order)
         List<AiChatSessionEntity> history =
@@ -72,25 +131,30 @@ public class AiChatService {
         List<Map<String, Object>> messages = new ArrayList<>();
 
         // Add context as first user message if there's location data
-        if (!recentLocations.isEmpty()) {
-            messages.add(Map.of("role", "user", "content",
+        if (!context.isEmpty()) {
+            messages.add(Map.of("role", "user", "content", List.of(ClaudeApiClient.cacheableText(
                     "[Sistem Bilgisi - Çocuk: " + child.getCocukAdi() + " " + child.getCocukSoyadi()
-                    + "]\n\nSon 24 saat konum verileri:\n" + locationContext));
+                    + "]\n\nSon 24 saat konum verileri:\n" + context.text()))));
             messages.add(Map.of("role", "assistant", "content",
                     "Anladım, " + child.getCocukAdi() + "'in konum verilerini inceliyorum. Size nasıl yardımcı olabilirim?"));
         }
 
         // Add chat history
-        for (AiChatSessionEntity msg : chronological) {
+        for (int i = 0; i < chronological.size(); i++) {
+            AiChatSessionEntity msg = chronological.get(i);
             String role = msg.getRole() == ChatRole.USER ? "user" : "assistant";
-            messages.add(Map.of("role", role, "content", msg.getContent()));
+            Object content = i == chronological.size() - 1
+                    ? List.of(ClaudeApiClient.cacheableText(msg.getContent()))
+                    : msg.getContent();
+            messages.add(Map.of("role", role, "content", content));
         }
 
         // Add current message
         messages.add(Map.of("role", "user", "content", userMessage));
+        return messages;
+    }
 
-        String aiResponse = claudeApiClient.sendMessages(SYSTEM_PROMPT, messages);
-
+    private void saveTurn(String parentId, ChildEntity child, String userMessage, String aiResponse) {
         // Save user message
         AiChatSessionEntity userMsg = new AiChatSessionEntity();
         userMsg.setChild(child);
@@ -106,7 +170,5 @@ public class AiChatService {
         assistantMsg.setRole(ChatRole.ASSISTANT);
         assistantMsg.setContent(aiResponse);
         chatSessionRepository.save(assistantMsg);
-
-        return new AiChatResponse(cocukUniqueId, aiResponse);
     }
 }
@@ -0,0 +1,147 @@
+package com.safekid.ai.service;
+
+import com.safekid.ai.entity.AiAnalysisEntity;
+import com.safekid.ai.entity.AnalysisType;
+import com.safekid.ai.repository.AiAnalysisRepository;
+import com.safekid.parent.entity.ChildEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Günlük özet ve rota tahmini gibi tekrar eden analizler için içerik adresli
+ * Claude yanıt önbelleği.
+ *
+ * <p>Anahtar: çocuk + analiz tipi + SHA-256(tip, pencere, system prompt, user mesajı).
+ * Aynı gün/pencere için konum verisi değişmediyse prompt da değişmez ve yanıt
+ * yeniden kullanılır; yeni konum geldiğinde hash değişir.
+ *
+ * <p>İki katman: bellekte LRU, arkasında {@code ai_analysis.input_hash}. Aynı anahtar
+ * için eşzamanlı istekler tek Claude çağrısını bekler.
+ */
+@Slf4j
+@Component
+public class AiResponseCache {
+
+    private final AiAnalysisRepository analysisRepository;
+    private final Map<String, String> lru;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter memoryHits;
+    private final Counter dbHits;
+    private final Counter misses;
+
+    public AiResponseCache(AiAnalysisRepository analysisRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${safekid.ai.response-cache.max-entries:1000}") int maxEntries) {
+        this.analysisRepository = analysisRepository;
+        this.lru = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.memoryHits = Counter.builder("safekid.ai.response.cache")
+                .tag("result", "memory-hit").register(meterRegistry);
+        this.dbHits = Counter.builder("safekid.ai.response.cache")
+                .tag("result", "db-hit").register(meterRegistry);
+        this.misses = Counter.builder("safekid.ai.response.cache")
+                .tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Önbellekte varsa kayıtlı yanıtı döner; yoksa {@code llmCall} ile Claude'u çağırır,
+     * sonucu {@code ai_analysis} tablosuna input hash ile kaydeder.
+     *
+     * @param window analiz penceresi (ör. gün için {@code 2025-03-12})
+     */
+    public String getOrCompute(ChildEntity child, AnalysisType type, String window,
+                               String systemPrompt, String userMessage,
+                               Supplier<String> llmCall) {
+        String hash = inputHash(type.name(), window, systemPrompt, userMessage);
+        String key = child.getCocukUniqueId() + ':' + hash;
+
+        String cached = lru.get(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            String result = loadOrCall(child, type, hash, llmCall);
+            lru.put(key, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private String loadOrCall(ChildEntity child, AnalysisType type, String hash, Supplier<String> llmCall) {
+        Optional<AiAnalysisEntity> stored = analysisRepository
+                .findFirstByChild_CocukUniqueIdAndAnalysisTypeAndInputHashOrderByCreatedAtDesc(
+                        child.getCocukUniqueId(), type, hash);
+        if (stored.isPresent()) {
+            dbHits.increment();
+            return stored.get().getResultJson();
+        }
+
+        misses.increment();
+        String result = llmCall.get();
+
+        AiAnalysisEntity analysis = new AiAnalysisEntity();
+        analysis.setChild(child);
+        analysis.setAnalysisType(type);
+        analysis.setResultJson(result);
+        analysis.setInputHash(hash);
+        analysis.setAcknowledged(true);
+        analysisRepository.save(analysis);
+        return result;
+    }
+
+    private static String await(CompletableFuture<String> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    static String inputHash(String... parts) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                sha.update(part.getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0); // parça sınırı
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    }
+}
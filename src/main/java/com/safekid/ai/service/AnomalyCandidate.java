@@ -0,0 +1,20 @@
+package com.safekid.ai.service;
+
+import com.safekid.parent.entity.ChildEntity;
+
+import java.util.List;
+
+/**
+ * Yerel ön-filtrelemeden geçen, Claude analizine gönderilecek çocuk.
+ *
+ * @param child      parent'ı yüklenmiş çocuk
+ * @param trace      son bir saatin konum izi (eskiden yeniye)
+ * @param localFlags yerel kuralların ürettiği bulgular
+ * @param stationary çocuk sabit mi (GPS sürüklenmesi)
+ */
+public record AnomalyCandidate(
+        ChildEntity child,
+        LocationTrace trace,
+        List<String> localFlags,
+        boolean stationary
+) {}
@@ -8,8 +8,6 @@ import com.safekid.ai.dto.AnomalyDetectionResponse;
 import com.safekid.ai.entity.AiAnalysisEntity;
 import com.safekid.ai.entity.AnalysisType;
 import com.safekid.ai.repository.AiAnalysisRepository;
-import com.safekid.child.entity.CocukKonumEntity;
-import com.safekid.child.repository.CocukKonumRepository;
 import com.safekid.child.sse.SseEmitterRegistry;
 import com.safekid.notification.FcmService;
 import com.safekid.parent.entity.ChildEntity;
@@ -18,7 +16,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -29,6 +26,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -36,10 +34,11 @@ import java.util.Map;
 public class AnomalyDetectionService {
 
     private final ClaudeApiClient claudeApiClient;
-    private final CocukKonumRepository konumRepository;
+    private final LocationTraceReader traceReader;
     private final ChildRepository childRepository;
     private final AiAnalysisRepository analysisRepository;
     private final LocationDataCollector dataCollector;
+    private final TraceSimplifier traceSimplifier;
     private final SseEmitterRegistry sseEmitterRegistry;
     private final FcmService fcmService;
     private final ObjectMapper objectMapper;
@@ -88,49 +87,45 @@ public class AnomalyDetectionService {
                 .findByCocukUniqueIdAndParent_EbeveynUniqueId(cocukUniqueId, parentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Çocuk bulunamadı"));
 
-        Instant oneHourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
-        List<CocukKonumEntity> recentLocations =
-                konumRepository.findByChild_CocukUniqueIdAndRecordedAtAfterOrderByRecordedAtAsc(
-                        cocukUniqueId, oneHourAgo);
+        LocationTrace recentLocations = loadRecentLocations(cocukUniqueId);
 
         if (recentLocations.size() < 2) {
             return new AnomalyDetectionResponse(cocukUniqueId, false, List.of(), "Yeterli veri yok.");
         }
 
-        // Local pre-filtering
-        List<String> localFlags = new ArrayList<>();
-        boolean suspiciousFound = false;
-
-        // GPS gürültüsü eşiği: 50m — evde uyuyan çocuğun GPS sapması tipik olarak <20m
-        boolean stationary = dataCollector.isStationary(recentLocations, 50);
-
-        // Anlık hız yerine 60 saniyelik kayan pencere ortalaması kullan (GPS gürültüsüne karşı)
-        double maxWindowSpeed = 0;
-        for (int i = 1; i < recentLocations.size(); i++) {
-            double windowSpeed = dataCollector.calculateWindowAverageSpeedKmh(recentLocations, i, 60);
-            maxWindowSpeed = Math.max(maxWindowSpeed, windowSpeed);
-        }
-        if (maxWindowSpeed > speedThresholdKmh) {
-            localFlags.add(String.format("Yüksek ortalama hız tespit: %.1f km/h (60 sn pencere)", maxWindowSpeed));
-            suspiciousFound = true;
+        Optional<AnomalyCandidate> candidate = prefilter(child, recentLocations);
+        if (candidate.isEmpty()) {
+            return new AnomalyDetectionResponse(cocukUniqueId, false, List.of(), "Anomali tespit edilmedi.");
         }
 
-        // Gece hareketi: sadece çocuk gerçekten yer değiştirmişse flag'le
-        ZonedDateTime lastTime = recentLocations.getLast().getRecordedAt()
-                .atZone(ZoneId.of("Europe/Istanbul"));
-        int hour = lastTime.getHour();
-        if ((hour >= 23 || hour < 6) && !stationary) {
-            localFlags.add("Gece saatinde hareket tespit edildi: " + lastTime.toLocalTime());
-            suspiciousFound = true;
-        }
+        String aiResponse = analyze(candidate.get());
+        return publish(candidate.get(), aiResponse);
+    }
 
-        if (!suspiciousFound) {
-            return new AnomalyDetectionResponse(cocukUniqueId, false, List.of(), "Anomali tespit edilmedi.");
-        }
+    // ───────────── Aşamalar ─────────────
+    // Periyodik tarama yalnızca AnomalyDetectionScheduler üzerinden yapılır;
+    // her aşama orada ayrı semaphore ile sınırlanır.
+
+    /**
+     * 1. aşama — DB okuma + yerel ön-filtreleme.
+     * Şüpheli bir durum yoksa Claude çağrısına gerek kalmaz.
+     *
+     * @param child parent'ı yüklenmiş çocuk
+     */
+    public Optional<AnomalyCandidate> prefilter(ChildEntity child) {
+        LocationTrace locations = loadRecentLocations(child.getCocukUniqueId());
+        if (locations.size() < 2) return Optional.empty();
+        return prefilter(child, locations);
+    }
 
-        // Call Claude for detailed analysis
-        String locationData = dataCollector.formatLocationsForPrompt(recentLocations);
-        String stationaryNote = stationary
+    /**
+     * 2. aşama — Claude ile detaylı analiz (bloklayan HTTP çağrısı).
+     */
+    public String analyze(AnomalyCandidate candidate) {
+        ChildEntity child = candidate.child();
+        String locationData = dataCollector.formatLocationsForPrompt(
+                traceSimplifier.simplify(candidate.trace(), AnalysisType.ANOMALY_DETECTION));
+        String stationaryNote = candidate.stationary()
                 ? "NOT: Çocuk sabit konumda (GPS sürüklenmesi var, gerçek hareket yok).\n"
                 : "";
         String userMessage = String.format("""
@@ -144,10 +139,18 @@ public class AnomalyDetectionService {
                 """,
                 child.getCocukAdi(), child.getCocukSoyadi(),
                 stationaryNote,
-                String.join("; ", localFlags),
+                String.join("; ", candidate.localFlags()),
                 locationData);
 
-        String aiResponse = claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage);
+        return claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage);
+    }
+
+    /**
+     * 3. aşama — anomali varsa kaydet, SSE + FCM ile ebeveyni bilgilendir.
+     */
+    public AnomalyDetectionResponse publish(AnomalyCandidate candidate, String aiResponse) {
+        ChildEntity child = candidate.child();
+        String cocukUniqueId = child.getCocukUniqueId();
         AnomalyDetectionResponse result = parseAnomalyResponse(cocukUniqueId, aiResponse);
 
         if (result.anomalyDetected()) {
@@ -179,94 +182,38 @@ public class AnomalyDetectionService {
         return result;
     }
 
-    @Scheduled(fixedDelayString = "${safekid.ai.anomaly-check-interval-ms}")
-    public void scheduledAnomalyCheck() {
-        log.info("Running scheduled anomaly check for all children...");
-        List<ChildEntity> allChildren = childRepository.findAll();
-        for (ChildEntity child : allChildren) {
-            try {
-                checkAnomalyInternal(child);
-            } catch (Exception e) {
-                log.error("Anomaly check failed for child {}: {}", child.getCocukUniqueId(), e.getMessage());
-            }
-        }
-    }
-
-    private void checkAnomalyInternal(ChildEntity child) {
+    private LocationTrace loadRecentLocations(String cocukUniqueId) {
         Instant oneHourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
-        List<CocukKonumEntity> locations =
-                konumRepository.findByChild_CocukUniqueIdAndRecordedAtAfterOrderByRecordedAtAsc(
-                        child.getCocukUniqueId(), oneHourAgo);
-
-        if (locations.size() < 2) return;
+        return traceReader.readSince(cocukUniqueId, oneHourAgo);
+    }
 
-        boolean suspiciousFound = false;
+    private Optional<AnomalyCandidate> prefilter(ChildEntity child, LocationTrace recentLocations) {
+        // Local pre-filtering
         List<String> localFlags = new ArrayList<>();
+        boolean suspiciousFound = false;
 
-        boolean stationary = dataCollector.isStationary(locations, 50);
+        // GPS gürültüsü eşiği: 50m — evde uyuyan çocuğun GPS sapması tipik olarak <20m
+        boolean stationary = dataCollector.isStationary(recentLocations, 50);
 
-        double maxWindowSpeed = 0;
-        for (int i = 1; i < locations.size(); i++) {
-            double windowSpeed = dataCollector.calculateWindowAverageSpeedKmh(locations, i, 60);
-            maxWindowSpeed = Math.max(maxWindowSpeed, windowSpeed);
-        }
+        // Anlık hız yerine 60 saniyelik kayan pencere ortalaması kullan (GPS gürültüsüne karşı)
+        double maxWindowSpeed = dataCollector.maxWindowAverageSpeedKmh(recentLocations, 60);
         if (maxWindowSpeed > speedThresholdKmh) {
-            localFlags.add(String.format("Yüksek ortalama hız: %.1f km/h (60 sn pencere)", maxWindowSpeed));
+            localFlags.add(String.format("Yüksek ortalama hız tespit: %.1f km/h (60 sn pencere)", maxWindowSpeed));
             suspiciousFound = true;
         }
 
-        ZonedDateTime lastTime = locations.getLast().getRecordedAt().atZone(ZoneId.of("Europe/Istanbul"));
+        // Gece hareketi: sadece çocuk gerçekten yer değiştirmişse flag'le
+        ZonedDateTime lastTime = Instant.ofEpochMilli(recentLocations.lastEpochMillis())
+                .atZone(ZoneId.of("Europe/Istanbul"));
         int hour = lastTime.getHour();
         if ((hour >= 23 || hour < 6) && !stationary) {
-            localFlags.add("Gece hareketi: " + lastTime.toLocalTime());
+            localFlags.add("Gece saatinde hareket tespit edildi: " + lastTime.toLocalTime());
             suspiciousFound = true;
         }
 
-        if (!suspiciousFound) return;
-
-        String locationData = dataCollector.formatLocationsForPrompt(locations);
-        String stationaryNote = stationary
-                ? "NOT: Çocuk sabit konumda (GPS sürüklenmesi var, gerçek hareket yok).\n"
-                : "";
-        String userMessage = String.format("""
-                Çocuk: %s %s
-                %sYerel bulgular: %s
-
-                === Son Konum Verileri ===
-                %s
-
-                Analiz et ve anomalileri belirle.
-                """,
-                child.getCocukAdi(), child.getCocukSoyadi(),
-                stationaryNote,
-                String.join("; ", localFlags), locationData);
-
-        String aiResponse = claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage);
-        AnomalyDetectionResponse result = parseAnomalyResponse(child.getCocukUniqueId(), aiResponse);
-
-        if (result.anomalyDetected()) {
-            AiAnalysisEntity analysis = new AiAnalysisEntity();
-            analysis.setChild(child);
-            analysis.setAnalysisType(AnalysisType.ANOMALY_DETECTION);
-            analysis.setResultJson(aiResponse);
-            analysis.setAcknowledged(false);
-            analysisRepository.save(analysis);
+        if (!suspiciousFound) return Optional.empty();
 
-            String parentId = child.getParent().getEbeveynUniqueId();
-            sseEmitterRegistry.sendEvent(parentId, "ai-anomaly-alert", Map.of(
-                    "cocukUniqueId", child.getCocukUniqueId(),
-                    "cocukAdi", child.getCocukAdi(),
-                    "summary", result.summary(),
-                    "alertId", analysis.getId()
-            ));
-
-            // FCM push notification
-            fcmService.sendAnomalyPush(
-                    child.getParent().getFcmToken(),
-                    "⚠️ Anomali: " + child.getCocukAdi(),
-                    result.summary()
-            );
-        }
+        return Optional.of(new AnomalyCandidate(child, recentLocations, localFlags, stationary));
     }
 
     private AnomalyDetectionResponse parseAnomalyResponse(String cocukUniqueId, String json) {
@@ -0,0 +1,108 @@
+package com.safekid.ai.service;
+
+import com.safekid.ai.entity.AnalysisType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sohbet oturumu (ebeveyn + çocuk) başına konum bağlamı önbelleği.
+ *
+ * <p>Bağlam bloğu yalnızca son turdan bu yana yeni konum geldiyse yeniden okunup
+ * formatlanır; aksi halde bayt bayt aynı metin döner. Bu, metnin Claude tarafında
+ * önbelleğe alınan prompt önekinde kalmasını (cache_control) da sağlar.
+ * Yeni konum kontrolü tek satırlık bir sorgudur (en son konumun zamanı).
+ *
+ * <p>Yeni konum gelmese de bağlam süresiz tutulmaz: 24 saatlik pencere bağlamdaki
+ * en eski konumu geride bıraktığında blok yeniden kurulur, eski konumlar düşer.
+ */
+@Component
+public class ChatContextCache {
+
+    private final LocationTraceReader traceReader;
+    private final TraceSimplifier traceSimplifier;
+    private final LocationDataCollector dataCollector;
+    private final Map<String, ChatContext> sessions;
+
+    private static final Duration WINDOW = Duration.ofDays(1);
+
+    private final Counter reused;
+    private final Counter rebuilt;
+
+    public ChatContextCache(LocationTraceReader traceReader,
+                            TraceSimplifier traceSimplifier,
+                            LocationDataCollector dataCollector,
+                            MeterRegistry meterRegistry,
+                            @Value("${safekid.ai.chat-context.max-sessions:1000}") int maxSessions) {
+        this.traceReader = traceReader;
+        this.traceSimplifier = traceSimplifier;
+        this.dataCollector = dataCollector;
+        this.sessions = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatContext> eldest) {
+                return size() > maxSessions;
+            }
+        });
+        this.reused = Counter.builder("safekid.ai.chat.context")
+                .tag("result", "reused").register(meterRegistry);
+        this.rebuilt = Counter.builder("safekid.ai.chat.context")
+                .tag("result", "rebuilt").register(meterRegistry);
+    }
+
+    /**
+     * Oturumun güncel konum bağlamını döner.
+     *
+     * @return bağlam; son 24 saatte konum yoksa {@code text() == null}
+     */
+    public ChatContext get(String parentId, String cocukUniqueId) {
+        String key = parentId + ':' + cocukUniqueId;
+        LocationTrace latest = traceReader.readLatest(cocukUniqueId, 1);
+        long latestFix = latest.isEmpty() ? Long.MIN_VALUE : latest.lastEpochMillis();
+
+        long windowStart = Instant.now().minus(WINDOW).toEpochMilli();
+
+        ChatContext cached = sessions.get(key);
+        if (cached != null && cached.lastFixMillis() >= latestFix && cached.firstFixMillis() >= windowStart) {
+            reused.increment();
+            return cached;
+        }
+
+        ChatContext built = build(cocukUniqueId, latestFix, windowStart);
+        sessions.put(key, built);
+        rebuilt.increment();
+        return built;
+    }
+
+    private ChatContext build(String cocukUniqueId, long latestFix, long windowStart) {
+        LocationTrace recentLocations = traceReader.readSince(cocukUniqueId, Instant.ofEpochMilli(windowStart));
+        if (recentLocations.isEmpty()) return ChatContext.empty(latestFix);
+
+        String text = dataCollector.formatLocationsForPrompt(
+                traceSimplifier.simplify(recentLocations, AnalysisType.CHAT_RESPONSE));
+        return new ChatContext(text, recentLocations.epochMillis(0), recentLocations.lastEpochMillis());
+    }
+
+    /**
+     * @param text           formatlanmış konum bloğu ya da {@code null}
+     * @param firstFixMillis bağlamdaki en eski konumun zamanı; pencere bunu geçince bağlam yenilenir
+     * @param lastFixMillis  bağlamdaki en yeni konumun zamanı
+     */
+    public record ChatContext(String text, long firstFixMillis, long lastFixMillis) {
+
+        /** Konumsuz bağlam; pencereden düşecek konumu olmadığından yalnızca yeni konumla yenilenir. */
+        public static ChatContext empty(long latestFix) {
+            return new ChatContext(null, Long.MAX_VALUE, latestFix);
+        }
+
+        public boolean isEmpty() {
+            return text == null;
+        }
+    }
+}
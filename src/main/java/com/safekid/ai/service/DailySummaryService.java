@@ -2,22 +2,15 @@ package com.safekid.ai.service;
 
 import com.safekid.ai.client.ClaudeApiClient;
 import com.safekid.ai.dto.DailySummaryResponse;
-import com.safekid.ai.entity.AiAnalysisEntity;
 import com.safekid.ai.entity.AnalysisType;
-import com.safekid.ai.repository.AiAnalysisRepository;
-import com.safekid.child.entity.CocukKonumEntity;
-import com.safekid.child.repository.CocukKonumRepository;
-import com.safekid.notification.FcmService;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -29,11 +22,12 @@ import java.util.List;
 public class DailySummaryService {
 
     private final ClaudeApiClient claudeApiClient;
-    private final CocukKonumRepository konumRepository;
+    private final LocationTraceReader traceReader;
     private final ChildRepository childRepository;
-    private final AiAnalysisRepository analysisRepository;
+    private final AiResponseCache responseCache;
     private final LocationDataCollector dataCollector;
-    private final FcmService fcmService;
+    private final TraceSimplifier traceSimplifier;
+    private final VisitTracker visitTracker;
 
     private static final ZoneId TZ = ZoneId.of("Europe/Istanbul");
 
@@ -49,6 +43,9 @@ public class DailySummaryService {
             - Toplam tahmini mesafe
             - Dikkat çeken durumlar (varsa)
 
+            Ziyaret edilen yerler ve en çok vakit geçirilen bölge için verilen
+            ziyaret listesini esas al; bunları konum satırlarından yeniden çıkarma.
+
             Doğal, anlaşılır bir Türkçe ile yaz. Ebeveyne hitap et.
             Sadece özet metnini yaz, JSON formatı kullanma.
             """;
@@ -57,69 +54,56 @@ public class DailySummaryService {
         ChildEntity child = childRepository
                 .findByCocukUniqueIdAndParent_EbeveynUniqueId(cocukUniqueId, parentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Çocuk bulunamadı"));
+        return summarize(child, date);
+    }
 
+    /**
+     * Zaten yüklenmiş çocuk için günlük özet. Toplu iş, sayfada parent'ı ile
+     * birlikte gelen çocuğu doğrudan verir; tekrar sorgu atılmaz.
+     */
+    public DailySummaryResponse summarize(ChildEntity child, LocalDate date) {
+        String cocukUniqueId = child.getCocukUniqueId();
         ZonedDateTime dayStart = date.atStartOfDay(TZ);
         ZonedDateTime dayEnd = dayStart.plusDays(1);
 
-        List<CocukKonumEntity> dayLocations =
-                konumRepository.findByChild_CocukUniqueIdAndRecordedAtBetweenOrderByRecordedAtAsc(
-                        cocukUniqueId, dayStart.toInstant(), dayEnd.toInstant());
+        LocationTrace dayLocations =
+                traceReader.read(cocukUniqueId, dayStart.toInstant(), dayEnd.toInstant());
 
         if (dayLocations.isEmpty()) {
             return new DailySummaryResponse(cocukUniqueId, date.toString(),
                     "Bu tarihte konum verisi bulunamadı.", 0, 0.0);
         }
 
-        String locationData = dataCollector.formatLocationsForPrompt(dayLocations);
+        LocationTrace promptTrace = traceSimplifier.simplify(dayLocations, AnalysisType.DAILY_SUMMARY);
+        String locationData = dataCollector.formatLocationsForPrompt(promptTrace);
+        List<Visit> visits = visitTracker.visitsBetween(
+                cocukUniqueId, dayStart.toInstant(), dayEnd.toInstant(), dayLocations);
+        String visitData = dataCollector.formatVisitsForPrompt(visits);
         double totalDistanceKm = dataCollector.calculateTotalDistanceKm(dayLocations);
 
         String userMessage = String.format("""
                 Çocuk: %s %s
                 Tarih: %s
-                Toplam konum noktası: %d
+                Toplam konum noktası: %d (tabloda sadeleştirilmiş %d satır; duraklar varış/ayrılış olarak)
                 Toplam mesafe: %.2f km
 
+                === Ziyaretler (durak tespiti) ===
+                %s
                 === Konum Verileri ===
                 %s
 
                 Bu verilere dayanarak günlük özet üret.
                 """,
                 child.getCocukAdi(), child.getCocukSoyadi(),
-                date, dayLocations.size(), totalDistanceKm, locationData);
-
-        String aiResponse = claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage);
+                date, dayLocations.size(), promptTrace.size(), totalDistanceKm, visitData, locationData);
 
-        // Save analysis
-        AiAnalysisEntity analysis = new AiAnalysisEntity();
-        analysis.setChild(child);
-        analysis.setAnalysisType(AnalysisType.DAILY_SUMMARY);
-        analysis.setResultJson(aiResponse);
-        analysis.setAcknowledged(true);
-        analysisRepository.save(analysis);
+        // Aynı gün için veri değişmediyse kayıtlı özet kullanılır
+        String aiResponse = responseCache.getOrCompute(
+                child, AnalysisType.DAILY_SUMMARY, date.toString(), SYSTEM_PROMPT, userMessage,
+                () -> claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage));
 
         return new DailySummaryResponse(
                 cocukUniqueId, date.toString(), aiResponse,
                 dayLocations.size(), Math.round(totalDistanceKm * 100.0) / 100.0);
     }
-
-    @Scheduled(cron = "${safekid.ai.daily-summary-cron}", zone = "Europe/Istanbul")
-    public void scheduledDailySummary() {
-        log.info("Running scheduled daily summary for all children...");
-        LocalDate today = LocalDate.now(TZ);
-        List<ChildEntity> allChildren = childRepository.findAll();
-        for (ChildEntity child : allChildren) {
-            try {
-                String parentId = child.getParent().getEbeveynUniqueId();
-                generateSummary(parentId, child.getCocukUniqueId(), today);
-                log.info("Daily summary generated for child {}", child.getCocukUniqueId());
-                fcmService.sendPush(
-                        child.getParent().getFcmToken(),
-                        child.getCocukAdi() + " günlük özet",
-                        "Bugünkü hareket özeti hazırlandı."
-                );
-            } catch (Exception e) {
-                log.error("Daily summary failed for child {}: {}", child.getCocukUniqueId(), e.getMessage());
-            }
-        }
-    }
 }
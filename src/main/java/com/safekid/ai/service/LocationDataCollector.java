@@ -1,11 +1,11 @@
 package com.safekid.ai.service;
 
-import com.safekid.child.entity.CocukKonumEntity;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -16,53 +16,71 @@ public class LocationDataCollector {
             .withZone(ZoneId.of("Europe/Istanbul"));
 
     /**
-     * Konum listesini Claude'a gönderilecek formata çevirir.
+     * Konum izini Claude'a gönderilecek formata çevirir.
      * <10 saniyelik aralıklar için hız hesaplanmaz (GPS gürültüsü filtresi).
      */
-    public String formatLocationsForPrompt(List<CocukKonumEntity> locations) {
-        if (locations.isEmpty()) return "Konum verisi yok.";
+    public String formatLocationsForPrompt(LocationTrace trace) {
+        if (trace.isEmpty()) return "Konum verisi yok.";
 
         StringBuilder sb = new StringBuilder();
         sb.append("Zaman | Enlem | Boylam | Ort.Hız(km/h) | Mesafe(m)\n");
         sb.append("------|-------|--------|--------------|----------\n");
 
-        CocukKonumEntity prev = null;
-        for (int i = 0; i < locations.size(); i++) {
-            CocukKonumEntity loc = locations.get(i);
+        for (int i = 0; i < trace.size(); i++) {
             double speed = 0;
             double distance = 0;
-            if (prev != null) {
-                distance = haversine(prev.getLat(), prev.getLng(), loc.getLat(), loc.getLng());
-                long seconds = loc.getRecordedAt().getEpochSecond() - prev.getRecordedAt().getEpochSecond();
+            if (i > 0) {
+                distance = haversine(trace.lat(i - 1), trace.lng(i - 1), trace.lat(i), trace.lng(i));
+                long seconds = trace.epochSecond(i) - trace.epochSecond(i - 1);
                 if (seconds >= 10) {
                     speed = (distance / 1000.0) / (seconds / 3600.0);
                 }
                 // <10 sn → speed=0 bırak, GPS gürültüsü
             }
             sb.append(String.format("%s | %.6f | %.6f | %.1f | %.0f%n",
-                    FMT.format(loc.getRecordedAt()),
-                    loc.getLat(), loc.getLng(), speed, distance));
-            prev = loc;
+                    FMT.format(Instant.ofEpochMilli(trace.epochMillis(i))),
+                    trace.lat(i), trace.lng(i), speed, distance));
         }
         return sb.toString();
     }
 
-    public double calculateTotalDistanceKm(List<CocukKonumEntity> locations) {
+    /**
+     * Durak tespitiyle bulunan ziyaretleri prompt tablosuna çevirir.
+     * En uzun ziyaret ayrıca belirtilir; LLM'in bunu ham satırlardan çıkarması gerekmez.
+     */
+    public String formatVisitsForPrompt(List<Visit> visits) {
+        if (visits.isEmpty()) return "Tespit edilen ziyaret yok.";
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Giriş | Çıkış | Süre(dk) | Enlem | Boylam\n");
+        sb.append("------|-------|----------|-------|-------\n");
+        for (Visit v : visits) {
+            sb.append(String.format("%s | %s | %d | %.6f | %.6f%n",
+                    FMT.format(v.enteredAt()), FMT.format(v.exitedAt()),
+                    v.dwell().toMinutes(), v.lat(), v.lng()));
+        }
+
+        Visit longest = visits.stream().max(Comparator.comparing(Visit::dwell)).orElseThrow();
+        sb.append(String.format("En uzun kalınan yer: %.6f, %.6f (%d dk, %s - %s)%n",
+                longest.lat(), longest.lng(), longest.dwell().toMinutes(),
+                FMT.format(longest.enteredAt()), FMT.format(longest.exitedAt())));
+        return sb.toString();
+    }
+
+    public double calculateTotalDistanceKm(LocationTrace trace) {
         double total = 0;
-        for (int i = 1; i < locations.size(); i++) {
-            total += haversine(
-                    locations.get(i - 1).getLat(), locations.get(i - 1).getLng(),
-                    locations.get(i).getLat(), locations.get(i).getLng());
+        for (int i = 1; i < trace.size(); i++) {
+            total += haversine(trace.lat(i - 1), trace.lng(i - 1), trace.lat(i), trace.lng(i));
         }
         return total / 1000.0;
     }
 
     /**
-     * İki ardışık nokta arası anlık hız. <10 sn ise 0 döner (GPS gürültüsü).
+     * İki ardışık nokta (i-1 → i) arası anlık hız. <10 sn ise 0 döner (GPS gürültüsü).
      */
-    public double calculateSpeedKmh(CocukKonumEntity a, CocukKonumEntity b) {
-        double distanceM = haversine(a.getLat(), a.getLng(), b.getLat(), b.getLng());
-        long seconds = b.getRecordedAt().getEpochSecond() - a.getRecordedAt().getEpochSecond();
+    public double calculateSpeedKmh(LocationTrace trace, int i) {
+        double distanceM = haversine(trace.lat(i - 1), trace.lng(i - 1), trace.lat(i), trace.lng(i));
+        long seconds = trace.epochSecond(i) - trace.epochSecond(i - 1);
         if (seconds < 10) return 0;
         return (distanceM / 1000.0) / (seconds / 3600.0);
     }
@@ -73,17 +91,16 @@ public class LocationDataCollector {
      * toplam mesafe / toplam süre hesabı yapar.
      * Pencerede en az 30 saniyelik veri yoksa 0 döner.
      */
-    public double calculateWindowAverageSpeedKmh(List<CocukKonumEntity> locations,
+    public double calculateWindowAverageSpeedKmh(LocationTrace trace,
                                                   int endIndex,
                                                   long windowSeconds) {
         if (endIndex <= 0) return 0;
 
-        CocukKonumEntity end = locations.get(endIndex);
-        Instant windowStart = end.getRecordedAt().minusSeconds(windowSeconds);
+        long windowStart = trace.epochMillis(endIndex) - windowSeconds * 1000L;
 
         int startIndex = endIndex;
         for (int i = endIndex - 1; i >= 0; i--) {
-            if (!locations.get(i).getRecordedAt().isBefore(windowStart)) {
+            if (trace.epochMillis(i) >= windowStart) {
                 startIndex = i;
             } else {
                 break;
@@ -92,31 +109,81 @@ public class LocationDataCollector {
 
         if (startIndex == endIndex) return 0;
 
-        long totalSeconds = end.getRecordedAt().getEpochSecond()
-                - locations.get(startIndex).getRecordedAt().getEpochSecond();
+        long totalSeconds = trace.epochSecond(endIndex) - trace.epochSecond(startIndex);
         if (totalSeconds < 30) return 0; // Pencere çok dar, güvenilmez
 
         double totalDistanceM = 0;
         for (int i = startIndex + 1; i <= endIndex; i++) {
-            totalDistanceM += haversine(
-                    locations.get(i - 1).getLat(), locations.get(i - 1).getLng(),
-                    locations.get(i).getLat(), locations.get(i).getLng());
+            totalDistanceM += haversine(trace.lat(i - 1), trace.lng(i - 1), trace.lat(i), trace.lng(i));
         }
 
         return (totalDistanceM / 1000.0) / (totalSeconds / 3600.0);
     }
 
+    /**
+     * {@link #calculateWindowAverageSpeedKmh} değerini tüm indeksler için tek geçişte hesaplar.
+     * Ardışık nokta mesafeleri bir kez hesaplanıp önek toplamında tutulur; pencere
+     * başlangıcı iki işaretçi ile ilerletilir → O(n).
+     *
+     * @return i. eleman, i noktasında biten pencerenin ortalama hızı (km/h); [0] = 0
+     */
+    public double[] windowAverageSpeedSeriesKmh(LocationTrace trace, long windowSeconds) {
+        int n = trace.size();
+        double[] speeds = new double[n];
+        if (n < 2) return speeds;
+
+        double[] cumDistanceM = new double[n];
+        for (int i = 1; i < n; i++) {
+            cumDistanceM[i] = cumDistanceM[i - 1]
+                    + haversine(trace.lat(i - 1), trace.lng(i - 1), trace.lat(i), trace.lng(i));
+        }
+
+        long windowMillis = windowSeconds * 1000L;
+        int start = 0;
+        for (int end = 1; end < n; end++) {
+            long windowStart = trace.epochMillis(end) - windowMillis;
+            while (start < end && trace.epochMillis(start) < windowStart) start++;
+
+            if (start == end) continue;
+
+            long totalSeconds = trace.epochSecond(end) - trace.epochSecond(start);
+            if (totalSeconds < 30) continue; // Pencere çok dar, güvenilmez
+
+            double distanceM = cumDistanceM[end] - cumDistanceM[start];
+            speeds[end] = (distanceM / 1000.0) / (totalSeconds / 3600.0);
+        }
+        return speeds;
+    }
+
+    /**
+     * Tüm pencereler içindeki en yüksek ortalama hız (km/h), O(n).
+     */
+    public double maxWindowAverageSpeedKmh(LocationTrace trace, long windowSeconds) {
+        double max = 0;
+        for (double speed : windowAverageSpeedSeriesKmh(trace, windowSeconds)) {
+            max = Math.max(max, speed);
+        }
+        return max;
+    }
+
     /**
      * Tüm konumların centroid'ini hesaplayıp her noktanın centroid'e uzaklığının maksimumunu döner.
      * maxDist < thresholdM ise çocuk büyük ihtimalle sabittir (GPS sürüklenmesi).
      */
-    public boolean isStationary(List<CocukKonumEntity> locations, double thresholdM) {
-        if (locations.size() < 2) return true;
-        double avgLat = locations.stream().mapToDouble(CocukKonumEntity::getLat).average().orElse(0);
-        double avgLng = locations.stream().mapToDouble(CocukKonumEntity::getLng).average().orElse(0);
-        double maxDist = locations.stream()
-                .mapToDouble(l -> haversine(avgLat, avgLng, l.getLat(), l.getLng()))
-                .max().orElse(0);
+    public boolean isStationary(LocationTrace trace, double thresholdM) {
+        int n = trace.size();
+        if (n < 2) return true;
+        double sumLat = 0, sumLng = 0;
+        for (int i = 0; i < n; i++) {
+            sumLat += trace.lat(i);
+            sumLng += trace.lng(i);
+        }
+        double avgLat = sumLat / n;
+        double avgLng = sumLng / n;
+        double maxDist = 0;
+        for (int i = 0; i < n; i++) {
+            maxDist = Math.max(maxDist, haversine(avgLat, avgLng, trace.lat(i), trace.lng(i)));
+        }
         return maxDist < thresholdM;
     }
 
@@ -0,0 +1,152 @@
+package com.safekid.ai.service;
+
+import com.safekid.child.dto.LocationPoint;
+import com.safekid.child.entity.CocukKonumEntity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sütunsal (columnar) konum izi: enlem, boylam ve zaman ayrı primitive dizilerde.
+ * Binlerce {@link CocukKonumEntity} yerine üç dizi tutar; noktalar zamana göre
+ * artan sıradadır. Oluşturulduktan sonra değiştirilmez.
+ */
+public final class LocationTrace {
+
+    private static final LocationTrace EMPTY = new LocationTrace(new double[0], new double[0], new long[0], 0);
+
+    private final double[] lat;
+    private final double[] lng;
+    private final long[] epochMillis;
+    private final int size;
+
+    private LocationTrace(double[] lat, double[] lng, long[] epochMillis, int size) {
+        this.lat = lat;
+        this.lng = lng;
+        this.epochMillis = epochMillis;
+        this.size = size;
+    }
+
+    public static LocationTrace empty() {
+        return EMPTY;
+    }
+
+    /** Eskiden yeniye sıralı entity listesinden iz oluşturur. */
+    public static LocationTrace fromEntities(List<CocukKonumEntity> locations) {
+        Builder b = new Builder(locations.size());
+        for (CocukKonumEntity loc : locations) {
+            b.add(loc.getLat(), loc.getLng(), loc.getRecordedAt().toEpochMilli());
+        }
+        return b.build();
+    }
+
+    /** Yeniden eskiye sıralı projeksiyon listesini ters çevirerek iz oluşturur. */
+    public static LocationTrace fromNewestFirst(List<LocationPoint> newestFirst) {
+        Builder b = new Builder(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            b.add(newestFirst.get(i));
+        }
+        return b.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double lat(int i) {
+        return lat[i];
+    }
+
+    public double lng(int i) {
+        return lng[i];
+    }
+
+    public long epochMillis(int i) {
+        return epochMillis[i];
+    }
+
+    public long epochSecond(int i) {
+        return Math.floorDiv(epochMillis[i], 1000L);
+    }
+
+    /** Son noktanın zamanı (epoch ms). İz boş olmamalıdır. */
+    public long lastEpochMillis() {
+        return epochMillis[size - 1];
+    }
+
+    /** [from, size) aralığının kopyası. */
+    public LocationTrace tail(int from) {
+        return new LocationTrace(
+                Arrays.copyOfRange(lat, from, size),
+                Arrays.copyOfRange(lng, from, size),
+                Arrays.copyOfRange(epochMillis, from, size),
+                size - from);
+    }
+
+    /** Zamanı {@code epochMillisExclusive}'den önceki noktalar; diziler kopyalanmaz. */
+    public LocationTrace before(long epochMillisExclusive) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochMillis[mid] < epochMillisExclusive) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == size) return this;
+        return lo == 0 ? EMPTY : new LocationTrace(lat, lng, epochMillis, lo);
+    }
+
+    /**
+     * Dizileri ihtiyaç oldukça büyüterek iz oluşturur. Stream okumalarında
+     * toplam satır sayısı önceden bilinmediği için kullanılır.
+     */
+    public static final class Builder {
+
+        private double[] lat;
+        private double[] lng;
+        private long[] epochMillis;
+        private int size;
+
+        public Builder() {
+            this(256);
+        }
+
+        public Builder(int initialCapacity) {
+            int cap = Math.max(initialCapacity, 16);
+            this.lat = new double[cap];
+            this.lng = new double[cap];
+            this.epochMillis = new long[cap];
+        }
+
+        public Builder add(LocationPoint p) {
+            return add(p.lat(), p.lng(), p.recordedAt().toEpochMilli());
+        }
+
+        public Builder add(double latValue, double lngValue, long epochMillisValue) {
+            if (size == lat.length) {
+                int cap = lat.length + (lat.length >> 1);
+                lat = Arrays.copyOf(lat, cap);
+                lng = Arrays.copyOf(lng, cap);
+                epochMillis = Arrays.copyOf(epochMillis, cap);
+            }
+            lat[size] = latValue;
+            lng[size] = lngValue;
+            epochMillis[size] = epochMillisValue;
+            size++;
+            return this;
+        }
+
+        public LocationTrace build() {
+            if (size == 0) return EMPTY;
+            // Fazla kapasiteyi bırakma — iz AI isteği boyunca yaşar
+            return new LocationTrace(
+                    Arrays.copyOf(lat, size),
+                    Arrays.copyOf(lng, size),
+                    Arrays.copyOf(epochMillis, size),
+                    size);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.safekid.ai.service;
+
+import com.safekid.child.dto.LocationPoint;
+import com.safekid.child.repository.CocukKonumRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * AI servisleri için konum geçmişini entity oluşturmadan okur.
+ *
+ * <p>Satırlar fetch-size ayarlı bir stream'den doğrudan {@link LocationTrace}
+ * dizilerine kopyalanır. Stream açık transaction ister; transaction yalnızca
+ * okuma süresince açık kalır, Claude çağrısı sırasında bağlantı tutulmaz.
+ */
+@Service
+@RequiredArgsConstructor
+public class LocationTraceReader {
+
+    private final CocukKonumRepository konumRepository;
+
+    /** [start, end] aralığındaki konumlar, eskiden yeniye. */
+    @Transactional(readOnly = true)
+    public LocationTrace read(String cocukUniqueId, Instant start, Instant end) {
+        LocationTrace.Builder builder = new LocationTrace.Builder();
+        try (Stream<LocationPoint> points = konumRepository.streamPoints(cocukUniqueId, start, end)) {
+            points.forEach(builder::add);
+        }
+        return builder.build();
+    }
+
+    /** start anından bu yana olan konumlar, eskiden yeniye. */
+    @Transactional(readOnly = true)
+    public LocationTrace readSince(String cocukUniqueId, Instant start) {
+        return read(cocukUniqueId, start, Instant.now());
+    }
+
+    /** En son {@code limit} konum, eskiden yeniye. */
+    @Transactional(readOnly = true)
+    public LocationTrace readLatest(String cocukUniqueId, int limit) {
+        return LocationTrace.fromNewestFirst(
+                konumRepository.findLatestPoints(cocukUniqueId, Limit.of(limit)));
+    }
+}
@@ -4,11 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safekid.ai.client.ClaudeApiClient;
 import com.safekid.ai.dto.RoutePredictionResponse;
-import com.safekid.ai.entity.AiAnalysisEntity;
 import com.safekid.ai.entity.AnalysisType;
-import com.safekid.ai.repository.AiAnalysisRepository;
-import com.safekid.child.entity.CocukKonumEntity;
-import com.safekid.child.repository.CocukKonumRepository;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
 import lombok.RequiredArgsConstructor;
@@ -30,10 +26,12 @@ import java.util.List;
 public class RoutePredictionService {
 
     private final ClaudeApiClient claudeApiClient;
-    private final CocukKonumRepository konumRepository;
+    private final LocationTraceReader traceReader;
     private final ChildRepository childRepository;
-    private final AiAnalysisRepository analysisRepository;
+    private final AiResponseCache responseCache;
     private final LocationDataCollector dataCollector;
+    private final TraceSimplifier traceSimplifier;
+    private final VisitTracker visitTracker;
     private final ObjectMapper objectMapper;
 
     private static final String SYSTEM_PROMPT = """
@@ -56,8 +54,7 @@ public class RoutePredictionService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Çocuk bulunamadı"));
 
         // Son 100 konum
-        List<CocukKonumEntity> recentLocations =
-                konumRepository.findTop100ByChild_CocukUniqueIdOrderByRecordedAtDesc(cocukUniqueId);
+        LocationTrace recentLocations = traceReader.readLatest(cocukUniqueId, 100);
 
         if (recentLocations.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Konum verisi bulunamadı");
@@ -68,14 +65,24 @@ public class RoutePredictionService {
         DayOfWeek today = now.getDayOfWeek();
         Instant weekAgoStart = now.minusDays(8).toInstant();
         Instant weekAgoEnd = now.minusDays(6).toInstant();
-        List<CocukKonumEntity> historicalLocations =
-                konumRepository.findByChild_CocukUniqueIdAndRecordedAtBetweenOrderByRecordedAtAsc(
-                        cocukUniqueId, weekAgoStart, weekAgoEnd);
 
-        String recentData = dataCollector.formatLocationsForPrompt(recentLocations.reversed());
-        String historicalData = historicalLocations.isEmpty()
-                ? "Geçmiş hafta verisi yok."
-                : dataCollector.formatLocationsForPrompt(historicalLocations);
+        String recentData = dataCollector.formatLocationsForPrompt(
+                traceSimplifier.simplify(recentLocations, AnalysisType.ROUTE_PREDICTION));
+        String recentVisitData = dataCollector.formatVisitsForPrompt(
+                visitTracker.visitsBetween(cocukUniqueId, now.minusDays(1).toInstant(), now.toInstant()));
+
+        // Geçen haftanın ziyaretleri kayıtlıysa ham iz hiç okunmaz
+        List<Visit> historicalVisits = visitTracker.visitsBetween(cocukUniqueId, weekAgoStart, weekAgoEnd);
+        String historicalData;
+        if (!historicalVisits.isEmpty()) {
+            historicalData = dataCollector.formatVisitsForPrompt(historicalVisits);
+        } else {
+            LocationTrace historicalLocations = traceReader.read(cocukUniqueId, weekAgoStart, weekAgoEnd);
+            historicalData = historicalLocations.isEmpty()
+                    ? "Geçmiş hafta verisi yok."
+                    : dataCollector.formatLocationsForPrompt(
+                            traceSimplifier.simplify(historicalLocations, AnalysisType.ROUTE_PREDICTION));
+        }
 
         String userMessage = String.format("""
                 Çocuk: %s %s
@@ -84,6 +91,9 @@ public class RoutePredictionService {
                 === Son Konum Verileri ===
                 %s
 
+                === Son 24 Saat Ziyaretler (durak tespiti) ===
+                %s
+
                 === Geçen Hafta Aynı Gün Verileri ===
                 %s
 
@@ -91,17 +101,13 @@ public class RoutePredictionService {
                 """,
                 child.getCocukAdi(), child.getCocukSoyadi(),
                 today, now.toLocalTime().truncatedTo(ChronoUnit.MINUTES),
-                recentData, historicalData);
-
-        String aiResponse = claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage);
+                recentData, recentVisitData, historicalData);
 
-        // Save analysis
-        AiAnalysisEntity analysis = new AiAnalysisEntity();
-        analysis.setChild(child);
-        analysis.setAnalysisType(AnalysisType.ROUTE_PREDICTION);
-        analysis.setResultJson(aiResponse);
-        analysis.setAcknowledged(true);
-        analysisRepository.save(analysis);
+        // Prompt dakika çözünürlüğünde; aynı dakikadaki tekrar istekler tek çağrıya düşer
+        String window = now.truncatedTo(ChronoUnit.MINUTES).toOffsetDateTime().toString();
+        String aiResponse = responseCache.getOrCompute(
+                child, AnalysisType.ROUTE_PREDICTION, window, SYSTEM_PROMPT, userMessage,
+                () -> claudeApiClient.sendMessage(SYSTEM_PROMPT, userMessage));
 
         return parseRoutePrediction(cocukUniqueId, aiResponse);
     }
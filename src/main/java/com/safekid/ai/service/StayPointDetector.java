@@ -0,0 +1,146 @@
+package com.safekid.ai.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministik durak (stay-point) tespiti.
+ *
+ * <p>Kümenin ilk konumu çapa alınır; çapaya {@code radiusMeters} içinde kalan ardışık
+ * konumlar kümeye eklenir. Yarıçap dışına çıkan ilk konum kümeyi kapatır ve yeni
+ * çapa olur. Kapanan küme en az {@code minDwellSeconds} sürmüşse bir {@link Visit}'tir.
+ *
+ * <p>Konumlar tek tek verilir ({@link #offer}); toplu tespit ({@link #detect}) aynı
+ * durum makinesini kullanır, böylece ingest sırasında artımlı bulunan ziyaretler
+ * ile geçmiş iz üzerinden bulunanlar birebir aynıdır. Thread-safe değildir.
+ */
+public final class StayPointDetector {
+
+    private final double radiusMeters;
+    private final long minDwellMillis;
+
+    private int index = -1;
+    private boolean hasCluster;
+    private double anchorLat, anchorLng;
+    private double sumLat, sumLng;
+    private int count;
+    private long firstMillis, lastMillis;
+    private int firstIndex, lastIndex;
+
+    /**
+     * Kalıcı saklanabilen küme durumu (bkz. {@code cocuk_ziyaret_durum}). Konum indeksleri
+     * saklanmaz; geri yüklenen kümenin {@code firstIndex}'i -1 olur.
+     */
+    public record State(double anchorLat, double anchorLng, double sumLat, double sumLng,
+                        int count, long firstMillis, long lastMillis) {}
+
+    public StayPointDetector(double radiusMeters, long minDwellSeconds) {
+        this.radiusMeters = radiusMeters;
+        this.minDwellMillis = minDwellSeconds * 1000L;
+    }
+
+    /**
+     * Bir iz üzerindeki tüm ziyaretler, sondaki kapanmamış ziyaret dahil.
+     */
+    public static List<Visit> detect(LocationTrace trace, double radiusMeters, long minDwellSeconds) {
+        StayPointDetector detector = new StayPointDetector(radiusMeters, minDwellSeconds);
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i++) {
+            Visit closed = detector.offer(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+            if (closed != null) visits.add(closed);
+        }
+        Visit open = detector.current();
+        if (open != null) visits.add(open);
+        return visits;
+    }
+
+    /**
+     * Daha önce kaydedilmiş açık bir ziyaretten devam eder (ör. uygulama yeniden
+     * başladıktan sonra). Centroid çapa olarak kullanılır.
+     */
+    public void resume(double lat, double lng, long enteredAtMillis, long exitedAtMillis, int pointCount) {
+        hasCluster = true;
+        anchorLat = lat;
+        anchorLng = lng;
+        sumLat = lat * pointCount;
+        sumLng = lng * pointCount;
+        count = pointCount;
+        firstMillis = enteredAtMillis;
+        lastMillis = exitedAtMillis;
+        firstIndex = -1;
+        lastIndex = index;
+    }
+
+    /** Şu anki küme; henüz konum yoksa {@code null}. */
+    public State state() {
+        if (!hasCluster) return null;
+        return new State(anchorLat, anchorLng, sumLat, sumLng, count, firstMillis, lastMillis);
+    }
+
+    /** {@link #state()} ile alınmış kümeden birebir devam eder (çapa dahil). */
+    public void restore(State state) {
+        hasCluster = true;
+        anchorLat = state.anchorLat();
+        anchorLng = state.anchorLng();
+        sumLat = state.sumLat();
+        sumLng = state.sumLng();
+        count = state.count();
+        firstMillis = state.firstMillis();
+        lastMillis = state.lastMillis();
+        firstIndex = -1;
+        lastIndex = index;
+    }
+
+    /**
+     * Yeni bir konum ekler. Zamanı son konumdan eski olanlar yok sayılır.
+     *
+     * @return bu konumla kapanan ziyaret; kapanan yoksa {@code null}
+     */
+    public Visit offer(double lat, double lng, long epochMillis) {
+        if (hasCluster && epochMillis < lastMillis) return null;
+        index++;
+
+        if (hasCluster && LocationDataCollector.haversine(anchorLat, anchorLng, lat, lng) <= radiusMeters) {
+            sumLat += lat;
+            sumLng += lng;
+            count++;
+            lastMillis = epochMillis;
+            lastIndex = index;
+            return null;
+        }
+
+        Visit closed = current();
+        startCluster(lat, lng, epochMillis);
+        return closed;
+    }
+
+    /**
+     * Şu anki küme en az {@code minDwellSeconds} sürdüyse açık ziyaret olarak döner.
+     */
+    public Visit current() {
+        if (!hasCluster || count < 2 || lastMillis - firstMillis < minDwellMillis) return null;
+        return new Visit(
+                sumLat / count, sumLng / count,
+                Instant.ofEpochMilli(firstMillis), Instant.ofEpochMilli(lastMillis),
+                count, firstIndex, lastIndex);
+    }
+
+    /** Son kabul edilen konumun zamanı; henüz konum yoksa {@link Long#MIN_VALUE}. */
+    public long lastEpochMillis() {
+        return hasCluster ? lastMillis : Long.MIN_VALUE;
+    }
+
+    private void startCluster(double lat, double lng, long epochMillis) {
+        hasCluster = true;
+        anchorLat = lat;
+        anchorLng = lng;
+        sumLat = lat;
+        sumLng = lng;
+        count = 1;
+        firstMillis = epochMillis;
+        lastMillis = epochMillis;
+        firstIndex = index;
+        lastIndex = index;
+    }
+}
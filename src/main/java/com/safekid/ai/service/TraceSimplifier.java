@@ -0,0 +1,196 @@
+package com.safekid.ai.service;
+
+import com.safekid.ai.config.PromptTraceProperties;
+import com.safekid.ai.config.PromptTraceProperties.Budget;
+import com.safekid.ai.entity.AnalysisType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Prompt'a girmeden önce konum izini sadeleştirir.
+ *
+ * <ol>
+ *   <li>Durak kümeleme ({@link StayPointDetector}): {@code stayRadiusMeters} içinde en az
+ *       {@code stayMinDurationSeconds} kalınan noktalar, centroid üzerinde varış + ayrılış
+ *       olmak üzere iki satıra indirilir.</li>
+ *   <li>Zamana duyarlı Douglas-Peucker: hareket parçalarında her noktanın önemi, iki uç
+ *       arasında zamana göre enterpole edilen konuma uzaklığıdır (SED). Böylece hız
+ *       değişimleri de korunur, sadece geometri değil.</li>
+ *   <li>Bütçe: önemi toleransın altındaki noktalar atılır; kalan satır sayısı yine de
+ *       token bütçesini aşarsa en önemli {@code maxRows} nokta tutulur.</li>
+ * </ol>
+ *
+ * Zaten bütçeye sığan izler olduğu gibi döner.
+ */
+@Service
+@RequiredArgsConstructor
+public class TraceSimplifier {
+
+    private final PromptTraceProperties properties;
+
+    public LocationTrace simplify(LocationTrace trace, AnalysisType type) {
+        return simplify(trace, properties.budgetFor(type));
+    }
+
+    public LocationTrace simplify(LocationTrace trace, Budget budget) {
+        int maxRows = budget.maxRows();
+        if (trace.size() <= maxRows) return trace;
+
+        boolean[][] pinnedOut = new boolean[1][];
+        LocationTrace reduced = collapseStays(trace, budget.getStayRadiusMeters(),
+                budget.getStayMinDurationSeconds(), pinnedOut);
+        boolean[] pinned = pinnedOut[0];
+
+        double[] significance = significance(reduced, pinned);
+        return select(reduced, significance, pinned, budget.getToleranceMeters(), maxRows);
+    }
+
+    // ───────────── 1. Durak kümeleme ─────────────
+
+    /**
+     * Durakları centroid üzerinde iki noktaya indirir. Durak uçları ile izin ilk/son
+     * noktası {@code pinned} olarak işaretlenir; bunlar Douglas-Peucker'da parça sınırıdır.
+     */
+    static LocationTrace collapseStays(LocationTrace trace, double radiusM, long minDurationSeconds,
+                                       boolean[][] pinnedOut) {
+        int n = trace.size();
+        List<Visit> stays = StayPointDetector.detect(trace, radiusM, minDurationSeconds);
+        LocationTrace.Builder out = new LocationTrace.Builder(n);
+        boolean[] pinned = new boolean[n];
+        int outSize = 0;
+
+        int v = 0;
+        int i = 0;
+        while (i < n) {
+            if (v < stays.size() && stays.get(v).firstIndex() == i) {
+                Visit stay = stays.get(v++);
+                out.add(stay.lat(), stay.lng(), stay.enteredAt().toEpochMilli());
+                pinned[outSize++] = true;
+                out.add(stay.lat(), stay.lng(), stay.exitedAt().toEpochMilli());
+                pinned[outSize++] = true;
+                i = stay.lastIndex() + 1;
+            } else {
+                out.add(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+                pinned[outSize++] = (i == 0 || i == n - 1);
+                i++;
+            }
+        }
+
+        pinnedOut[0] = Arrays.copyOf(pinned, outSize);
+        return out.build();
+    }
+
+    // ───────────── 2. Zamana duyarlı Douglas-Peucker ─────────────
+
+    /**
+     * Her noktanın Douglas-Peucker önemi (m). Sabit noktalar {@code +∞}.
+     * Bir noktanın önemi, bölündüğü üst parçanın öneminden büyük olamaz; böylece
+     * önem eşiği ile seçim, o toleransla çalıştırılmış DP ile aynı sonucu verir.
+     */
+    static double[] significance(LocationTrace trace, boolean[] pinned) {
+        int n = trace.size();
+        double[] sig = new double[n];
+
+        Deque<Segment> stack = new ArrayDeque<>();
+        int segStart = 0;
+        for (int i = 0; i < n; i++) {
+            if (!pinned[i]) continue;
+            sig[i] = Double.POSITIVE_INFINITY;
+            if (i - segStart > 1) stack.push(new Segment(segStart, i, Double.POSITIVE_INFINITY));
+            segStart = i;
+        }
+
+        while (!stack.isEmpty()) {
+            Segment seg = stack.pop();
+
+            int maxIdx = -1;
+            double maxDist = -1;
+            for (int k = seg.from() + 1; k < seg.to(); k++) {
+                double d = synchronizedDistance(trace, seg.from(), seg.to(), k);
+                if (d > maxDist) {
+                    maxDist = d;
+                    maxIdx = k;
+                }
+            }
+
+            double s = Math.min(maxDist, seg.cap());
+            sig[maxIdx] = s;
+            if (maxIdx - seg.from() > 1) stack.push(new Segment(seg.from(), maxIdx, s));
+            if (seg.to() - maxIdx > 1) stack.push(new Segment(maxIdx, seg.to(), s));
+        }
+        return sig;
+    }
+
+    /** Douglas-Peucker parçası; {@code cap}, bölünen üst parçanın önemi. */
+    private record Segment(int from, int to, double cap) {}
+
+    /**
+     * k noktasının, a→b parçasında aynı zamana enterpole edilen konuma uzaklığı (m).
+     */
+    static double synchronizedDistance(LocationTrace trace, int a, int b, int k) {
+        long span = trace.epochMillis(b) - trace.epochMillis(a);
+        double f = span <= 0 ? 0 : (double) (trace.epochMillis(k) - trace.epochMillis(a)) / span;
+        double lat = trace.lat(a) + (trace.lat(b) - trace.lat(a)) * f;
+        double lng = trace.lng(a) + (trace.lng(b) - trace.lng(a)) * f;
+        return LocationDataCollector.haversine(lat, lng, trace.lat(k), trace.lng(k));
+    }
+
+    // ───────────── 3. Tolerans + bütçe ile seçim ─────────────
+
+    static LocationTrace select(LocationTrace trace, double[] sig, boolean[] pinned,
+                                double toleranceM, int maxRows) {
+        int n = trace.size();
+
+        int pinnedCount = 0;
+        for (boolean p : pinned) if (p) pinnedCount++;
+        if (pinnedCount >= maxRows) {
+            return decimatePinned(trace, pinned, pinnedCount, maxRows);
+        }
+
+        // Tolerans eşiği, bütçe aşılıyorsa maxRows'uncu en büyük önem
+        double threshold = toleranceM;
+        int aboveTolerance = 0;
+        for (double s : sig) if (s >= toleranceM) aboveTolerance++;
+        if (aboveTolerance > maxRows) {
+            double[] sorted = sig.clone();
+            Arrays.sort(sorted);
+            threshold = sorted[n - maxRows];
+        }
+
+        // Eşik değerine eşit olanlar bütçeyi aşmasın diye sayılarak alınır
+        int strictlyAbove = 0;
+        for (double s : sig) if (s > threshold) strictlyAbove++;
+        int equalAllowance = maxRows - strictlyAbove;
+
+        LocationTrace.Builder out = new LocationTrace.Builder(Math.min(n, maxRows));
+        for (int i = 0; i < n; i++) {
+            boolean keep = sig[i] > threshold;
+            if (!keep && sig[i] == threshold && equalAllowance > 0) {
+                keep = true;
+                equalAllowance--;
+            }
+            if (keep) out.add(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+        }
+        return out.build();
+    }
+
+    /** Durak sayısı bile bütçeyi aşıyorsa: sabit noktalardan eşit aralıklı örnek, ilk ve son dahil. */
+    private static LocationTrace decimatePinned(LocationTrace trace, boolean[] pinned,
+                                                int pinnedCount, int maxRows) {
+        int[] idx = new int[pinnedCount];
+        int c = 0;
+        for (int i = 0; i < pinned.length; i++) if (pinned[i]) idx[c++] = i;
+
+        LocationTrace.Builder out = new LocationTrace.Builder(maxRows);
+        for (int r = 0; r < maxRows; r++) {
+            int i = idx[(int) Math.round((double) r * (pinnedCount - 1) / (maxRows - 1))];
+            out.add(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+        }
+        return out.build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.safekid.ai.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Durak tespitiyle bulunan bir ziyaret: çocuğun bir yarıçap içinde en az
+ * belirli bir süre kaldığı ardışık konumlar.
+ *
+ * @param lat        kümedeki konumların centroid enlemi
+ * @param lng        kümedeki konumların centroid boylamı
+ * @param enteredAt  kümedeki ilk konumun zamanı
+ * @param exitedAt   kümedeki son konumun zamanı
+ * @param pointCount kümedeki konum sayısı
+ * @param firstIndex ilk konumun detector'a verilme sırası (0 tabanlı); resume edilen
+ *                   ziyarette -1
+ * @param lastIndex  son konumun detector'a verilme sırası
+ */
+public record Visit(
+        double lat,
+        double lng,
+        Instant enteredAt,
+        Instant exitedAt,
+        int pointCount,
+        int firstIndex,
+        int lastIndex
+) {
+
+    public Duration dwell() {
+        return Duration.between(enteredAt, exitedAt);
+    }
+}
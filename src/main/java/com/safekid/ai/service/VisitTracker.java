@@ -0,0 +1,249 @@
+package com.safekid.ai.service;
+
+import com.safekid.ai.entity.CocukZiyaretDurumEntity;
+import com.safekid.ai.entity.CocukZiyaretEntity;
+import com.safekid.ai.repository.CocukZiyaretDurumRepository;
+import com.safekid.ai.repository.CocukZiyaretRepository;
+import com.safekid.parent.repository.ChildRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Gelen konumlardan ziyaretleri artımlı olarak çıkarır ve {@code cocuk_ziyaret}
+ * tablosuna yazar.
+ *
+ * <p>Her çocuğun {@link StayPointDetector} durumu {@code cocuk_ziyaret_durum}'da tutulur.
+ * Bir konum grubu, o satır {@code FOR UPDATE} ile kilitlenmiş tek transaction'da işlenir:
+ * aynı çocuğun konumları farklı düğümlere düşse de sırayla işlenir ve ziyaretler tek
+ * kez açılıp kapanır. Düğüm içinde her çocuğun grupları geliş sırasıyla, tek seferde
+ * bir işçi tarafından işlenir; işçi meşgulken gelen gruplar birleştirilip zamana göre
+ * sıralanır, böylece eski konumlar yenilerinin ardından gelip düşürülmez. Ziyaret tablosuna yalnızca bir küme ziyaret eşiğini geçtiğinde
+ * (insert), kapandığında ve açık ziyaretin çıkış zamanı {@code flush-interval-seconds}
+ * ilerlediğinde (update) yazılır.
+ */
+@Slf4j
+@Component
+public class VisitTracker {
+
+    private final CocukZiyaretRepository visitRepository;
+    private final CocukZiyaretDurumRepository stateRepository;
+    private final ChildRepository childRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final double radiusMeters;
+    private final long minDwellSeconds;
+    private final long flushIntervalMillis;
+
+    // Çocuk başına bekleyen gruplar; anahtar varken o çocuğun işçisi çalışıyordur
+    private final ConcurrentHashMap<String, ArrayDeque<Fixes>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private record Fixes(double[] lats, double[] lngs, long[] epochMillis) {}
+
+    public VisitTracker(CocukZiyaretRepository visitRepository,
+                        CocukZiyaretDurumRepository stateRepository,
+                        ChildRepository childRepository,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${safekid.ai.visits.radius-meters:75}") double radiusMeters,
+                        @Value("${safekid.ai.visits.min-dwell-seconds:300}") long minDwellSeconds,
+                        @Value("${safekid.ai.visits.flush-interval-seconds:60}") long flushIntervalSeconds) {
+        this.visitRepository = visitRepository;
+        this.stateRepository = stateRepository;
+        this.childRepository = childRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.radiusMeters = radiusMeters;
+        this.minDwellSeconds = minDwellSeconds;
+        this.flushIntervalMillis = flushIntervalSeconds * 1000L;
+    }
+
+    /**
+     * Yeni konumları kuyruğa alır ve çağıranı bekletmez. Konumlar kaydedildikleri
+     * transaction commit edildikten sonra verilmelidir. Konumlar zamana göre sıralanır;
+     * çocuğun son işlenen konumundan eski olanlar yok sayılır.
+     */
+    public void onFixes(String childId, double[] lats, double[] lngs, long[] epochMillis) {
+        if (epochMillis.length == 0) return;
+        Fixes fixes = new Fixes(lats, lngs, epochMillis);
+        ArrayDeque<Fixes> created = new ArrayDeque<>(2);
+        ArrayDeque<Fixes> queue = pending.compute(childId, (id, q) -> {
+            ArrayDeque<Fixes> target = q == null ? created : q;
+            target.add(fixes);
+            return target;
+        });
+        if (queue == created) {
+            workers.execute(() -> drain(childId));
+        }
+    }
+
+    /** Çocuğun kuyruğu boşalana kadar bekleyen grupları birleştirip sırayla işler. */
+    private void drain(String childId) {
+        while (true) {
+            List<Fixes> batches = new ArrayList<>();
+            pending.computeIfPresent(childId, (id, q) -> {
+                batches.addAll(q);
+                q.clear();
+                return q;
+            });
+            Fixes merged = merge(batches);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        process(childId, merged.lats(), merged.lngs(), merged.epochMillis()));
+            } catch (Exception e) {
+                log.error("Ziyaret güncellenemedi — çocuk: {}, hata: {}", childId, e.getMessage());
+            }
+            // Kuyruk boşsa işçi çıkar; bu arada yeni grup geldiyse devam eder
+            if (pending.computeIfPresent(childId, (id, q) -> q.isEmpty() ? null : q) == null) return;
+        }
+    }
+
+    private static Fixes merge(List<Fixes> batches) {
+        if (batches.size() == 1) return batches.getFirst();
+        int n = 0;
+        for (Fixes f : batches) n += f.epochMillis().length;
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        long[] epochMillis = new long[n];
+        int at = 0;
+        for (Fixes f : batches) {
+            int len = f.epochMillis().length;
+            System.arraycopy(f.lats(), 0, lats, at, len);
+            System.arraycopy(f.lngs(), 0, lngs, at, len);
+            System.arraycopy(f.epochMillis(), 0, epochMillis, at, len);
+            at += len;
+        }
+        return new Fixes(lats, lngs, epochMillis);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private void process(String childId, double[] lats, double[] lngs, long[] epochMillis) {
+        int[] order = timeOrder(epochMillis);
+        stateRepository.insertIfAbsent(childId, Instant.ofEpochMilli(epochMillis[order[0]]));
+        CocukZiyaretDurumEntity state = stateRepository.findForUpdate(childId).orElseThrow();
+
+        StayPointDetector detector = new StayPointDetector(radiusMeters, minDwellSeconds);
+        if (state.getPointCount() > 0) {
+            detector.restore(new StayPointDetector.State(
+                    state.getAnchorLat(), state.getAnchorLng(), state.getSumLat(), state.getSumLng(),
+                    state.getPointCount(), state.getFirstAt().toEpochMilli(), state.getLastAt().toEpochMilli()));
+        } else {
+            // Durum tablosundan önce açılmış ziyaret varsa ondan devam edilir
+            visitRepository.findFirstByChild_CocukUniqueIdAndOpenTrueOrderByEnteredAtDesc(childId)
+                    .ifPresent(z -> {
+                        detector.resume(z.getLat(), z.getLng(),
+                                z.getEnteredAt().toEpochMilli(), z.getExitedAt().toEpochMilli(), z.getPointCount());
+                        state.setOpenVisitId(z.getId());
+                        state.setLastFlushedExitAt(z.getExitedAt());
+                    });
+        }
+
+        for (int i : order) {
+            Visit closed = detector.offer(lats[i], lngs[i], epochMillis[i]);
+            if (closed != null) {
+                persist(childId, state, closed, false);
+            }
+        }
+        Visit open = detector.current();
+        if (open != null && (state.getOpenVisitId() == null
+                || open.exitedAt().toEpochMilli() - state.getLastFlushedExitAt().toEpochMilli() >= flushIntervalMillis)) {
+            persist(childId, state, open, true);
+        }
+
+        StayPointDetector.State cluster = detector.state();
+        if (cluster != null) {
+            state.setAnchorLat(cluster.anchorLat());
+            state.setAnchorLng(cluster.anchorLng());
+            state.setSumLat(cluster.sumLat());
+            state.setSumLng(cluster.sumLng());
+            state.setPointCount(cluster.count());
+            state.setFirstAt(Instant.ofEpochMilli(cluster.firstMillis()));
+            state.setLastAt(Instant.ofEpochMilli(cluster.lastMillis()));
+        }
+    }
+
+    /**
+     * [start, end) ile kesişen kayıtlı ziyaretler; uçlar aralığa kırpılır.
+     */
+    public List<Visit> visitsBetween(String childId, Instant start, Instant end) {
+        List<Visit> visits = new ArrayList<>();
+        for (CocukZiyaretEntity z : visitRepository.findOverlapping(childId, start, end)) {
+            Instant entered = z.getEnteredAt().isBefore(start) ? start : z.getEnteredAt();
+            Instant exited = z.getExitedAt().isAfter(end) ? end : z.getExitedAt();
+            visits.add(new Visit(z.getLat(), z.getLng(), entered, exited, z.getPointCount(), -1, -1));
+        }
+        return visits;
+    }
+
+    /**
+     * Kayıtlı ziyaretler + kayıtların eksiksiz olmadığı kısım için iz üzerinden tespit.
+     * Çocuğun takibi ({@code tracked_since}) aralığın ortasında başladıysa (ör. dağıtım
+     * günü) öncesi {@code fallback} izinden aynı parametrelerle bulunur; kayıtlı bir
+     * ziyaretle zamanca çakışan tespit sonucu alınmaz.
+     */
+    public List<Visit> visitsBetween(String childId, Instant start, Instant end, LocationTrace fallback) {
+        List<Visit> stored = visitsBetween(childId, start, end);
+        Instant trackedSince = stateRepository.findTrackedSince(childId).orElse(null);
+        if (fallback.isEmpty() || (trackedSince != null && !trackedSince.isAfter(start))) return stored;
+
+        LocationTrace uncovered = trackedSince == null ? fallback : fallback.before(trackedSince.toEpochMilli());
+        List<Visit> visits = new ArrayList<>(stored);
+        for (Visit detected : StayPointDetector.detect(uncovered, radiusMeters, minDwellSeconds)) {
+            boolean overlaps = stored.stream().anyMatch(v ->
+                    detected.enteredAt().isBefore(v.exitedAt()) && v.enteredAt().isBefore(detected.exitedAt()));
+            if (!overlaps) visits.add(detected);
+        }
+        visits.sort(Comparator.comparing(Visit::enteredAt));
+        return visits;
+    }
+
+    private void persist(String childId, CocukZiyaretDurumEntity state, Visit visit, boolean open) {
+        if (state.getOpenVisitId() == null) {
+            CocukZiyaretEntity z = new CocukZiyaretEntity();
+            z.setChild(childRepository.getReferenceById(childId));
+            z.setLat(visit.lat());
+            z.setLng(visit.lng());
+            z.setEnteredAt(visit.enteredAt());
+            z.setExitedAt(visit.exitedAt());
+            z.setPointCount(visit.pointCount());
+            z.setOpen(open);
+            visitRepository.save(z);
+            state.setOpenVisitId(open ? z.getId() : null);
+        } else {
+            visitRepository.updateVisit(state.getOpenVisitId(), visit.lat(), visit.lng(),
+                    visit.exitedAt(), visit.pointCount(), open);
+            if (!open) state.setOpenVisitId(null);
+        }
+        state.setLastFlushedExitAt(visit.exitedAt());
+    }
+
+    /** Zamana göre sıralı indeksler; normal akışta girdi zaten sıralıdır, sıralama yapılmaz. */
+    private static int[] timeOrder(long[] epochMillis) {
+        boolean sorted = true;
+        for (int i = 1; i < epochMillis.length && sorted; i++) {
+            sorted = epochMillis[i] >= epochMillis[i - 1];
+        }
+        int[] order = IntStream.range(0, epochMillis.length).toArray();
+        if (sorted) return order;
+        return Arrays.stream(order).boxed()
+                .sorted(Comparator.comparingLong(i -> epochMillis[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -2,6 +2,15 @@ package com.safekid.auth.util;
 
 public final class IdGenerator {
     private static final de.huxhorn.sulky.ulid.ULID ulid = new de.huxhorn.sulky.ulid.ULID();
+    private static de.huxhorn.sulky.ulid.ULID.Value lastMonotonic;
+
     public static String newId() { return ulid.nextULID(); }
+
+    /** Aynı milisaniye içinde de artan ULID; sıralamanın önemli olduğu olay id'leri için. */
+    public static synchronized String newMonotonicId() {
+        lastMonotonic = lastMonotonic == null ? ulid.nextValue() : ulid.nextMonotonicValue(lastMonotonic);
+        return lastMonotonic.toString();
+    }
+
     private IdGenerator() {}
 }
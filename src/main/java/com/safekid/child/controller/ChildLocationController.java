@@ -1,5 +1,6 @@
 package com.safekid.child.controller;
 
+import com.safekid.child.dto.LocationBatchResponse;
 import com.safekid.child.dto.LocationCreateRequest;
 import com.safekid.child.dto.LocationResponse;
 import com.safekid.child.service.ChildLocationService;
@@ -7,6 +8,8 @@ import com.safekid.config.SecurityUtils;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/child/location")
 public class ChildLocationController {
@@ -22,4 +25,11 @@ public class ChildLocationController {
         String childId = SecurityUtils.extractChildId(auth);
         return service.saveLocation(childId, req);
     }
+
+    // Çevrimdışı biriktirilen konumlar — eskiden yeniye sıralı dizi
+    @PostMapping("/batch")
+    public LocationBatchResponse pushLocations(@RequestBody List<LocationCreateRequest> reqs, Authentication auth) {
+        String childId = SecurityUtils.extractChildId(auth);
+        return service.saveLocations(childId, reqs);
+    }
 }
@@ -0,0 +1,7 @@
+package com.safekid.child.dto;
+
+public record LocationBatchResponse(
+        String childId,
+        int savedCount,
+        LocationResponse latest
+) {}
@@ -0,0 +1,13 @@
+package com.safekid.child.dto;
+
+import java.time.Instant;
+
+/**
+ * Konum geçmişi okumaları için entity'siz projeksiyon (JPQL constructor expression).
+ * Yalnızca AI servislerinin kullandığı alanları taşır; child proxy'si oluşmaz.
+ */
+public record LocationPoint(
+        Double lat,
+        Double lng,
+        Instant recordedAt
+) {}
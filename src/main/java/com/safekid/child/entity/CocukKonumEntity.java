@@ -7,6 +7,11 @@ import lombok.Setter;
 
 import java.time.Instant;
 
+/**
+ * Konum geçmişi. Liquibase ile yönetilen şemada tablo {@code recorded_at} üzerinden aylık
+ * bölümlüdür ve DB'deki PK {@code (id, recorded_at)}'dir; id sequence'ten geldiği için
+ * tek başına da benzersizdir.
+ */
 @Getter
 @Setter
 @Entity
@@ -14,7 +19,8 @@ import java.time.Instant;
 public class CocukKonumEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cocuk_konum_seq")
+    @SequenceGenerator(name = "cocuk_konum_seq", sequenceName = "cocuk_konum_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
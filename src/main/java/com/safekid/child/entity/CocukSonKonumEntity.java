@@ -0,0 +1,41 @@
+package com.safekid.child.entity;
+
+import com.safekid.parent.entity.ChildEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Çocuk başına tek satır: en son konum. {@code cocuk_konum}'a yazan her işlemde
+ * aynı transaction içinde upsert edilir (bkz. {@code CocukKonumBatchRepository#upsertLatest});
+ * harita ve son konum sorguları büyüyen geçmiş tablosu yerine bunu okur.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "cocuk_son_konum")
+public class CocukSonKonumEntity {
+
+    @Id
+    @Column(name = "cocuk_unique_id", length = 32)
+    private String cocukUniqueId;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "cocuk_unique_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private ChildEntity child;
+
+    @Column(name = "lat", nullable = false)
+    private Double lat;
+
+    @Column(name = "lng", nullable = false)
+    private Double lng;
+
+    @Column(name = "recorded_at", nullable = false)
+    private Instant recordedAt;
+}
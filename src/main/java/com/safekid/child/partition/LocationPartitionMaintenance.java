@@ -0,0 +1,222 @@
+package com.safekid.child.partition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code cocuk_konum} aylık bölüm bakımı (bkz. 020-partition-cocuk-konum.xml).
+ *
+ * <p>Açılışta ve her gün: içinde bulunulan ay ile sonraki {@code premake-months} ayın
+ * bölümleri {@code cocuk_konum_ensure_partition} ile oluşturulur. Saklama açıksa üst
+ * sınırı saklama sınırından önce kalan bölümler (legacy dahil) önce isteğe bağlı olarak
+ * {@code cocuk_konum_arsiv}'e seyreltilir, sonra ayrılır ya da silinir. Eski veri
+ * {@code DELETE} yerine bölüm olarak gittiği için vacuum ve indeks şişmesi oluşmaz.
+ *
+ * <p>Her adım ayrı transaction'dadır ve veritabanı fonksiyonuyla aynı advisory lock'u
+ * alır; birden fazla düğüm aynı anda çalışırsa biri adımı atlar. Şema Hibernate ile
+ * oluşturulmuşsa (tablo bölümlü değilse) iş bir şey yapmaz.
+ */
+@Slf4j
+@Component
+public class LocationPartitionMaintenance {
+
+    private static final String IS_PARTITIONED_SQL = """
+            SELECT COALESCE((SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass('cocuk_konum')), false)
+            """;
+
+    private static final String ENSURE_SQL = "SELECT cocuk_konum_ensure_partition(?)";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('cocuk_konum_partition'))";
+
+    /** DEFAULT bölüm hariç; ad regclass ile tırnaklanmış gelir. */
+    private static final String PARTITIONS_SQL = """
+            SELECT name, upper_bound
+            FROM (
+                SELECT c.oid::regclass::text AS name,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'cocuk_konum'::regclass
+            ) p
+            WHERE upper_bound IS NOT NULL
+            ORDER BY upper_bound
+            """;
+
+    private static final String ATTACHED_SQL = """
+            SELECT EXISTS (SELECT 1 FROM pg_inherits
+                           WHERE inhrelid = to_regclass(?) AND inhparent = 'cocuk_konum'::regclass)
+            """;
+
+    /** Çocuk + zaman dilimi başına ilk konum; tekrar çalıştırılabilir. */
+    private static final String ARCHIVE_SQL = """
+            INSERT INTO cocuk_konum_arsiv (cocuk_unique_id, recorded_at, lat, lng)
+            SELECT DISTINCT ON (cocuk_unique_id, bucket) cocuk_unique_id, recorded_at, lat, lng
+            FROM (SELECT k.*, floor(extract(epoch FROM k.recorded_at) / ?) AS bucket FROM %s k) b
+            ORDER BY cocuk_unique_id, bucket, recorded_at
+            ON CONFLICT (cocuk_unique_id, recorded_at) DO NOTHING
+            """;
+
+    record Partition(String name, Instant upperBound) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final LocationPartitionProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean notPartitionedLogged = new AtomicBoolean(false);
+
+    private final Timer runDuration;
+    private final Counter created;
+    private final Counter detached;
+    private final Counter dropped;
+    private final Counter archivedRows;
+    private final Counter failed;
+
+    public LocationPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate tx,
+                                        LocationPartitionProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = tx;
+        this.properties = properties;
+
+        this.runDuration = Timer.builder("safekid.location.partitions.maintenance")
+                .description("Konum bölüm bakımı süresi")
+                .register(meterRegistry);
+        this.created = partitionCounter(meterRegistry, "created");
+        this.detached = partitionCounter(meterRegistry, "detached");
+        this.dropped = partitionCounter(meterRegistry, "dropped");
+        this.failed = partitionCounter(meterRegistry, "failed");
+        this.archivedRows = Counter.builder("safekid.location.archive.rows")
+                .description("cocuk_konum_arsiv'e yazılan seyreltilmiş konum sayısı")
+                .register(meterRegistry);
+    }
+
+    private static Counter partitionCounter(MeterRegistry registry, String action) {
+        return Counter.builder("safekid.location.partitions")
+                .tag("action", action)
+                .register(registry);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${safekid.location.partitions.cron:0 30 3 * * *}", zone = "UTC")
+    public void scheduled() {
+        run();
+    }
+
+    void run() {
+        if (!properties.isEnabled()) return;
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Location partition maintenance already running, skipped.");
+            return;
+        }
+        try {
+            runDuration.record(() -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class))) {
+                    if (notPartitionedLogged.compareAndSet(false, true)) {
+                        log.info("cocuk_konum is not partitioned (schema not managed by Liquibase); maintenance skipped.");
+                    }
+                    return;
+                }
+                premake();
+                if (properties.getRetentionMonths() > 0) {
+                    applyRetention();
+                }
+            });
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Location partition maintenance failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void premake() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= properties.getPremakeMonths(); i++) {
+            YearMonth month = current.plusMonths(i);
+            Boolean made = jdbcTemplate.queryForObject(ENSURE_SQL, Boolean.class, month.atDay(1));
+            if (Boolean.TRUE.equals(made)) {
+                created.increment();
+                log.info("Created cocuk_konum partition for {}", month);
+            }
+        }
+    }
+
+    private void applyRetention() {
+        Instant cutoff = YearMonth.now(ZoneOffset.UTC)
+                .minusMonths(properties.getRetentionMonths())
+                .atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        List<Partition> partitions = jdbcTemplate.query(PARTITIONS_SQL, (rs, i) ->
+                new Partition(rs.getString("name"), rs.getTimestamp("upper_bound").toInstant()));
+
+        for (Partition partition : partitions) {
+            if (partition.upperBound().isAfter(cutoff)) break;
+            try {
+                retire(partition);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Could not retire partition {}: {}", partition.name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Arşivleme uzun sürebileceği için ayrı transaction'dadır; ON CONFLICT sayesinde
+     * ayırma adımı başarısız olursa bir sonraki çalıştırmada tekrar yapılabilir.
+     */
+    private void retire(Partition partition) {
+        if (properties.getArchive().isEnabled()) {
+            long bucketSeconds = Math.max(1, properties.getArchive().getBucket().toSeconds());
+            Integer rows = tx.execute(status -> lockedAndAttached(partition)
+                    ? jdbcTemplate.update(ARCHIVE_SQL.formatted(partition.name()), bucketSeconds)
+                    : null);
+            if (rows == null) return;
+            archivedRows.increment(rows);
+            log.info("Archived {} downsampled locations from {}", rows, partition.name());
+        }
+
+        boolean drop = properties.getRetentionAction() == LocationPartitionProperties.RetentionAction.DROP;
+        Boolean done = tx.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.getLockTimeout().toMillis());
+            if (!lockedAndAttached(partition)) return false;
+            jdbcTemplate.execute("ALTER TABLE cocuk_konum DETACH PARTITION " + partition.name());
+            if (drop) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(done)) return;
+
+        (drop ? dropped : detached).increment();
+        log.info("{} cocuk_konum partition {} (upper bound {})",
+                drop ? "Dropped" : "Detached", partition.name(), partition.upperBound());
+    }
+
+    /** Başka düğüm aynı anda çalışıyorsa ya da bölüm zaten ayrılmışsa false. */
+    private boolean lockedAndAttached(Partition partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class))
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject(ATTACHED_SQL, Boolean.class, partition.name()));
+    }
+}
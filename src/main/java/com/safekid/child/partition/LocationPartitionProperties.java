@@ -0,0 +1,72 @@
+package com.safekid.child.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * {@code cocuk_konum} aylık bölüm bakımı ve saklama süresi.
+ *
+ * <pre>
+ * safekid.location.partitions.enabled=true
+ * safekid.location.partitions.cron=0 30 3 * * *
+ * safekid.location.partitions.premake-months=3
+ * safekid.location.partitions.retention-months=12
+ * safekid.location.partitions.retention-action=DROP
+ * safekid.location.partitions.lock-timeout=5s
+ * safekid.location.partitions.archive.enabled=true
+ * safekid.location.partitions.archive.bucket=5m
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.location.partitions")
+@Getter
+@Setter
+public class LocationPartitionProperties {
+
+    public enum RetentionAction {
+        /** Bölüm tablodan ayrılır, veri ayrı tablo olarak kalır (elle yedeklenip silinir). */
+        DETACH,
+        /** Bölüm ayrılır ve silinir. */
+        DROP
+    }
+
+    /** Bakım işi çalışsın mı. Tablo bölümlü değilse iş zaten bir şey yapmaz. */
+    private boolean enabled = true;
+
+    /** Günlük bakım zamanı (UTC). */
+    private String cron = "0 30 3 * * *";
+
+    /** İçinde bulunulan aydan sonra kaç ayın bölümü önceden oluşturulur. */
+    private int premakeMonths = 3;
+
+    /**
+     * Üst sınırı (içinde bulunulan ay − bu değer) başından önce kalan bölümler saklama dışıdır.
+     * 0 saklamayı kapatır; hiçbir bölüm ayrılmaz.
+     */
+    private int retentionMonths = 0;
+
+    private RetentionAction retentionAction = RetentionAction.DETACH;
+
+    /**
+     * DETACH ana tabloyu kısa süre kilitler; kilit bu sürede alınamazsa adım atlanır
+     * ve ertesi çalıştırmada tekrar denenir. Konum yazımları uzun süre bekletilmez.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(5);
+
+    private Archive archive = new Archive();
+
+    @Getter
+    @Setter
+    public static class Archive {
+
+        /** Bölüm ayrılmadan önce {@code cocuk_konum_arsiv}'e seyreltilmiş kopyası yazılsın mı. */
+        private boolean enabled = false;
+
+        /** Çocuk başına bu uzunluktaki her zaman diliminden yalnızca ilk konum saklanır. */
+        private Duration bucket = Duration.ofMinutes(5);
+    }
+}
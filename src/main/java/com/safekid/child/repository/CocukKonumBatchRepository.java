@@ -0,0 +1,41 @@
+package com.safekid.child.repository;
+
+import com.safekid.child.entity.CocukKonumEntity;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Toplu konum yazımı için özel repository parçası.
+ * Spring Data, {@link CocukKonumBatchRepositoryImpl} sınıfını otomatik bağlar.
+ */
+public interface CocukKonumBatchRepository {
+
+    /**
+     * Verilen konumları tek bir JDBC batch insert ile {@code cocuk_konum} tablosuna yazar.
+     * Entity'ler persistence context'e alınmaz; id değerleri {@code cocuk_konum_id_seq}'ten
+     * 50'lik bloklar halinde (Hibernate ile aynı şekilde) ayrılır, satır başına nextval çağrılmaz.
+     *
+     * @param childId   konumların ait olduğu çocuk
+     * @param locations sıralı konum listesi (child alanı kullanılmaz)
+     */
+    void batchInsert(String childId, List<CocukKonumEntity> locations);
+
+    /**
+     * {@code cocuk_son_konum} satırını upsert eder; mevcut satır yalnızca gelen konum
+     * daha yeni (veya aynı an) ise güncellenir. Konum insert'üyle aynı transaction
+     * içinde çağrılmalıdır.
+     */
+    void upsertLatest(String childId, double lat, double lng, Instant recordedAt);
+
+    /**
+     * {@code cocuk_son_konum}'u çocuk başına {@code cocuk_konum} geçmişinden tamamlar:
+     * satırı olmayan çocuk eklenir, geçmişte daha yeni konumu olanın satırı güncellenir.
+     * Şema Liquibase yerine Hibernate ile oluşturulduğunda backfill changeset'i
+     * çalışmadığı ve tablo yalnızca bazı çocuklar için dolu olabileceği için her
+     * açılışta çağrılır. Eşzamanlı {@link #upsertLatest} ile güvenle çalışır.
+     *
+     * @return eklenen ya da güncellenen satır sayısı
+     */
+    int backfillLatest();
+}
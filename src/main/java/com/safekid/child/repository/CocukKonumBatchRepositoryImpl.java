@@ -0,0 +1,101 @@
+package com.safekid.child.repository;
+
+import com.safekid.child.entity.CocukKonumEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+class CocukKonumBatchRepositoryImpl implements CocukKonumBatchRepository {
+
+    /**
+     * {@code CocukKonumEntity} üzerindeki {@code allocationSize} ile aynı olmalı: her nextval
+     * {@code (değer - 49) .. değer} bloğunu ayırır (Hibernate pooled optimizer ile aynı yorum).
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final String ID_BLOCKS_SQL =
+            "SELECT nextval('cocuk_konum_id_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO cocuk_konum (id, cocuk_unique_id, lat, lng, recorded_at)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private static final String UPSERT_LATEST_SQL = """
+            INSERT INTO cocuk_son_konum (cocuk_unique_id, lat, lng, recorded_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (cocuk_unique_id) DO UPDATE
+               SET lat = EXCLUDED.lat, lng = EXCLUDED.lng, recorded_at = EXCLUDED.recorded_at
+             WHERE cocuk_son_konum.recorded_at <= EXCLUDED.recorded_at
+            """;
+
+    /** Çocuk başına tek indeks araması (cocuk_unique_id, recorded_at); geçmişin tamamı taranmaz. */
+    private static final String BACKFILL_LATEST_SQL = """
+            INSERT INTO cocuk_son_konum (cocuk_unique_id, lat, lng, recorded_at)
+            SELECT c.cocuk_unique_id, k.lat, k.lng, k.recorded_at
+            FROM cocuk c
+            CROSS JOIN LATERAL (
+                SELECT lat, lng, recorded_at
+                FROM cocuk_konum
+                WHERE cocuk_unique_id = c.cocuk_unique_id
+                ORDER BY recorded_at DESC
+                LIMIT 1
+            ) k
+            ON CONFLICT (cocuk_unique_id) DO UPDATE
+               SET lat = EXCLUDED.lat, lng = EXCLUDED.lng, recorded_at = EXCLUDED.recorded_at
+             WHERE cocuk_son_konum.recorded_at < EXCLUDED.recorded_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    CocukKonumBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void batchInsert(String childId, List<CocukKonumEntity> locations) {
+        if (locations.isEmpty()) return;
+
+        long[] ids = allocateIds(locations.size());
+        int[] next = {0};
+        jdbcTemplate.batchUpdate(INSERT_SQL, locations, locations.size(), (ps, konum) -> {
+            ps.setLong(1, ids[next[0]++]);
+            ps.setString(2, childId);
+            ps.setDouble(3, konum.getLat());
+            ps.setDouble(4, konum.getLng());
+            ps.setObject(5, OffsetDateTime.ofInstant(konum.getRecordedAt(), ZoneOffset.UTC));
+        });
+    }
+
+    /**
+     * Satır başına nextval yerine 50'lik bloklar: 500 konum için 10 nextval, tek sorgu.
+     * Yeni sequence'in ilk değeri (1) eksik blok verir; 1'den küçük id'ler atlanır.
+     */
+    private long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        int i = 0;
+        while (i < count) {
+            int blocks = (count - i + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            for (long hi : jdbcTemplate.queryForList(ID_BLOCKS_SQL, Long.class, blocks)) {
+                for (long id = Math.max(1, hi - ID_BLOCK_SIZE + 1); id <= hi && i < count; id++) {
+                    ids[i++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void upsertLatest(String childId, double lat, double lng, Instant recordedAt) {
+        jdbcTemplate.update(UPSERT_LATEST_SQL,
+                childId, lat, lng, OffsetDateTime.ofInstant(recordedAt, ZoneOffset.UTC));
+    }
+
+    @Override
+    public int backfillLatest() {
+        return jdbcTemplate.update(BACKFILL_LATEST_SQL);
+    }
+}
@@ -1,42 +1,68 @@
 package com.safekid.child.repository;
 
+import com.safekid.child.dto.LocationPoint;
 import com.safekid.child.entity.CocukKonumEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface CocukKonumRepository extends JpaRepository<CocukKonumEntity, Long> {
+public interface CocukKonumRepository extends JpaRepository<CocukKonumEntity, Long>, CocukKonumBatchRepository {
 
-    Optional<CocukKonumEntity> findTopByChild_CocukUniqueIdOrderByRecordedAtDesc(String childId);
-
-    List<CocukKonumEntity>
-    findByChild_CocukUniqueIdAndRecordedAtAfterOrderByRecordedAtAsc(
-            String cocukUniqueId,
-            Instant recordedAt
-    );
+    /** Çocuğun en son konumu; geçmiş tablosu yerine {@code cocuk_son_konum}'dan tek satır okunur. */
+    @Query("""
+            SELECT new com.safekid.child.dto.LocationPoint(s.lat, s.lng, s.recordedAt)
+            FROM CocukSonKonumEntity s
+            WHERE s.cocukUniqueId = :childId
+            """)
+    Optional<LocationPoint> findLatestPoint(@Param("childId") String cocukUniqueId);
 
+    /** Satır başına {@code [cocuk_unique_id, lat, lng, recorded_at]}; konumu olmayan çocuk dönmez. */
     @Query(value = """
-            SELECT DISTINCT ON (cocuk_unique_id)
-                cocuk_unique_id, lat, lng, recorded_at
-            FROM cocuk_konum
+            SELECT cocuk_unique_id, lat, lng, recorded_at
+            FROM cocuk_son_konum
             WHERE cocuk_unique_id IN (:childIds)
-            ORDER BY cocuk_unique_id, recorded_at DESC
             """, nativeQuery = true)
     List<Object[]> findLatestLocationsByChildIds(@Param("childIds") List<String> childIds);
 
-    List<CocukKonumEntity>
-    findByChild_CocukUniqueIdAndRecordedAtBetweenOrderByRecordedAtAsc(
-            String cocukUniqueId,
-            Instant start,
-            Instant end
-    );
+    /**
+     * [start, end] aralığındaki konumları projeksiyon olarak stream eder (eskiden yeniye).
+     * Entity / child proxy'si oluşmaz; PostgreSQL sürücüsü fetch size ile satırları
+     * parça parça getirir. Çağıran taraf açık bir transaction içinde olmalı ve
+     * stream'i kapatmalıdır.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.safekid.child.dto.LocationPoint(k.lat, k.lng, k.recordedAt)
+            FROM CocukKonumEntity k
+            WHERE k.child.cocukUniqueId = :childId
+              AND k.recordedAt >= :start
+              AND k.recordedAt <= :end
+            ORDER BY k.recordedAt ASC
+            """)
+    Stream<LocationPoint> streamPoints(@Param("childId") String cocukUniqueId,
+                                       @Param("start") Instant start,
+                                       @Param("end") Instant end);
 
-    List<CocukKonumEntity>
-    findTop100ByChild_CocukUniqueIdOrderByRecordedAtDesc(String cocukUniqueId);
+    /** En son konumlar projeksiyon olarak (yeniden eskiye). */
+    @Query("""
+            SELECT new com.safekid.child.dto.LocationPoint(k.lat, k.lng, k.recordedAt)
+            FROM CocukKonumEntity k
+            WHERE k.child.cocukUniqueId = :childId
+            ORDER BY k.recordedAt DESC
+            """)
+    List<LocationPoint> findLatestPoints(@Param("childId") String cocukUniqueId, Limit limit);
 
 
 }
@@ -1,6 +1,9 @@
 package com.safekid.child.service;
 
+import com.safekid.ai.service.VisitTracker;
+import com.safekid.child.dto.LocationBatchResponse;
 import com.safekid.child.dto.LocationCreateRequest;
+import com.safekid.child.dto.LocationPoint;
 import com.safekid.child.dto.LocationResponse;
 import com.safekid.child.dto.MapChildLocation;
 import com.safekid.child.entity.CocukKonumEntity;
@@ -10,13 +13,18 @@ import com.safekid.geofence.service.GeofenceService;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -27,15 +35,24 @@ public class ChildLocationService {
     private final ChildRepository childRepo;
     private final SseEmitterRegistry sseRegistry;
     private final GeofenceService geofenceService;
+    private final VisitTracker visitTracker;
+    private final LastKnownLocationCache lastKnown;
+
+    @Value("${safekid.location.batch-max-size:500}")
+    private int batchMaxSize;
 
     public ChildLocationService(CocukKonumRepository konumRepo,
                                 ChildRepository childRepo,
                                 SseEmitterRegistry sseRegistry,
-                                GeofenceService geofenceService) {
+                                GeofenceService geofenceService,
+                                VisitTracker visitTracker,
+                                LastKnownLocationCache lastKnown) {
         this.konumRepo       = konumRepo;
         this.childRepo       = childRepo;
         this.sseRegistry     = sseRegistry;
         this.geofenceService = geofenceService;
+        this.visitTracker    = visitTracker;
+        this.lastKnown       = lastKnown;
     }
 
     @Transactional
@@ -52,24 +69,34 @@ public class ChildLocationService {
         konum.setRecordedAt(req.recordedAt() != null ? req.recordedAt() : Instant.now());
 
         konumRepo.save(konum);
+        konumRepo.upsertLatest(childId, konum.getLat(), konum.getLng(), konum.getRecordedAt());
+        lastKnown.recordFixAfterCommit(child, konum.getLat(), konum.getLng(), konum.getRecordedAt());
 
         String parentId = child.getParent().getEbeveynUniqueId();
-
-        // 🔥 realtime map update
-        sseRegistry.send(parentId, new MapChildLocation(
+        String childName = child.getCocukAdi() + " " + child.getCocukSoyadi();
+        String fcmToken = child.getParent().getFcmToken();
+        MapChildLocation location = new MapChildLocation(
                 childId,
-                child.getCocukAdi() + " " + child.getCocukSoyadi(),
+                childName,
                 konum.getLat(),
                 konum.getLng(),
                 konum.getRecordedAt(),
                 true
-        ));
+        );
 
-        geofenceService.checkAndAlert(
-                childId, parentId,
-                child.getCocukAdi() + " " + child.getCocukSoyadi(),
-                child.getParent().getFcmToken(),
-                konum.getLat(), konum.getLng());
+        // 🔥 realtime map update — commit sonrası; geri alınan konum yayınlanmaz ve
+        // bus'ı dinleyen önbellekler DB'den önce güncellenmez. Alarm sırası korunur.
+        afterCommit(() -> {
+            // Önce kuyruğa alınır (bekletmez); SSE/geofence hatası ziyaret takibini atlatmaz
+            visitTracker.onFixes(childId,
+                    new double[]{location.lat()},
+                    new double[]{location.lng()},
+                    new long[]{location.lastSeenAt().toEpochMilli()});
+            sseRegistry.send(parentId, location);
+            geofenceService.checkAndAlert(
+                    childId, parentId, childName, fcmToken,
+                    location.lat(), location.lng());
+        });
 
         return new LocationResponse(
                 childId,
@@ -79,9 +106,116 @@ public class ChildLocationService {
         );
     }
 
+    /**
+     * Çevrimdışıyken biriktirilmiş konumları tek seferde kaydeder.
+     * Çocuk bir kez çözülür, kayıtlar tek JDBC batch insert ile yazılır.
+     * SSE'ye yalnızca en yeni konum gönderilir; geofence kontrolü tüm konumlar
+     * üzerinde gönderim sırasıyla çalışır. Bunlar ve ziyaret takibi commit sonrası tetiklenir.
+     */
+    @Transactional
+    public LocationBatchResponse saveLocations(String childId, List<LocationCreateRequest> reqs) {
+
+        if (reqs == null || reqs.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "En az bir konum gönderilmeli");
+        }
+        if (reqs.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Tek istekte en fazla " + batchMaxSize + " konum gönderilebilir");
+        }
+
+        ChildEntity child = childRepo.findByCocukUniqueId(childId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Child not found"));
+
+        Instant now = Instant.now();
+        List<CocukKonumEntity> konumlar = new ArrayList<>(reqs.size());
+        double[] lats = new double[reqs.size()];
+        double[] lngs = new double[reqs.size()];
+        long[] times = new long[reqs.size()];
+        CocukKonumEntity latest = null;
+
+        for (int i = 0; i < reqs.size(); i++) {
+            LocationCreateRequest req = reqs.get(i);
+            if (req == null || req.lat() == null || req.lng() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Konum " + i + ": lat ve lng zorunlu");
+            }
+
+            CocukKonumEntity konum = new CocukKonumEntity();
+            konum.setLat(req.lat());
+            konum.setLng(req.lng());
+            konum.setRecordedAt(req.recordedAt() != null ? req.recordedAt() : now);
+            konumlar.add(konum);
+
+            lats[i] = konum.getLat();
+            lngs[i] = konum.getLng();
+            times[i] = konum.getRecordedAt().toEpochMilli();
+
+            if (latest == null || !konum.getRecordedAt().isBefore(latest.getRecordedAt())) {
+                latest = konum;
+            }
+        }
+
+        konumRepo.batchInsert(childId, konumlar);
+        konumRepo.upsertLatest(childId, latest.getLat(), latest.getLng(), latest.getRecordedAt());
+        lastKnown.recordFixAfterCommit(child, latest.getLat(), latest.getLng(), latest.getRecordedAt());
+
+        String parentId = child.getParent().getEbeveynUniqueId();
+        String childName = child.getCocukAdi() + " " + child.getCocukSoyadi();
+
+        String fcmToken = child.getParent().getFcmToken();
+        MapChildLocation location = new MapChildLocation(
+                childId,
+                childName,
+                latest.getLat(),
+                latest.getLng(),
+                latest.getRecordedAt(),
+                true
+        );
+
+        // realtime map update — sadece en yeni konum, commit sonrası
+        afterCommit(() -> {
+            visitTracker.onFixes(childId, lats, lngs, times);
+            sseRegistry.send(parentId, location);
+            geofenceService.checkAndAlertAll(
+                    childId, parentId, childName, fcmToken,
+                    lats, lngs);
+        });
+
+        return new LocationBatchResponse(
+                childId,
+                konumlar.size(),
+                new LocationResponse(childId, latest.getLat(), latest.getLng(), latest.getRecordedAt())
+        );
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     // ✅ LAST LOCATION
     public LocationResponse getLastLocationForParent(String parentId, String childId) {
 
+        // Sıcak yol: sorgu yok
+        LastKnownLocationCache.Entry cached = lastKnown.get(childId).orElse(null);
+        if (cached != null) {
+            if (!cached.parentId().equals(parentId)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN,"Bu çocuk sana ait değil");
+            }
+            if (!cached.hasLocation()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Konum bulunamadı");
+            }
+            return new LocationResponse(childId, cached.lat(), cached.lng(), cached.recordedAt());
+        }
+
         ChildEntity child = childRepo.findByCocukUniqueId(childId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Child not found"));
 
@@ -89,21 +223,25 @@ public class ChildLocationService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN,"Bu çocuk sana ait değil");
         }
 
-        CocukKonumEntity last =
-                konumRepo.findTopByChild_CocukUniqueIdOrderByRecordedAtDesc(childId)
+        LocationPoint last =
+                konumRepo.findLatestPoint(childId)
                         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Konum bulunamadı"));
 
         return new LocationResponse(
                 childId,
-                last.getLat(),
-                last.getLng(),
-                last.getRecordedAt()
+                last.lat(),
+                last.lng(),
+                last.recordedAt()
         );
     }
 
     // ⭐⭐⭐ SAFE KID MAP (ULTRA STABLE VERSION)
     public List<MapChildLocation> getMapForParent(String parentId) {
 
+        // Sıcak yol: önbellek ısındıysa sorgu yok
+        Optional<List<MapChildLocation>> cached = lastKnown.mapFor(parentId);
+        if (cached.isPresent()) return cached.get();
+
         List<ChildEntity> children =
                 childRepo.findAllByParent_EbeveynUniqueId(parentId);
 
@@ -138,13 +276,7 @@ public class ChildLocationService {
                         );
                     }
 
-                    Object rawTs = row[3];
-
-                    Instant recordedAt =
-                            rawTs instanceof Instant i ? i :
-                                    rawTs instanceof java.sql.Timestamp ts ? ts.toInstant() :
-                                            rawTs instanceof java.time.OffsetDateTime odt ? odt.toInstant() :
-                                                    Instant.now();
+                    Instant recordedAt = LastKnownLocationCache.toInstant(row[3]);
 
                     return new MapChildLocation(
                             child.getCocukUniqueId(),
@@ -157,4 +289,4 @@ public class ChildLocationService {
                 })
                 .toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+package com.safekid.child.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safekid.child.dto.MapChildLocation;
+import com.safekid.child.repository.CocukKonumRepository;
+import com.safekid.child.sse.SseBusMessage;
+import com.safekid.child.sse.SseEventBus;
+import com.safekid.parent.entity.ChildEntity;
+import com.safekid.parent.repository.ChildRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Çocuk başına son bilinen konum + ebeveyn başına çocuk listesi, bellekte.
+ *
+ * <p>Harita ve son konum uçları ısındıktan sonra hiç sorgu atmadan buradan okunur.
+ * Konum kaydı commit sonrası yazılır (yalnızca daha yeni konum kabul edilir);
+ * diğer düğümlerdeki kayıtlar {@link SseEventBus} üzerinden gelen
+ * {@code location-update} olaylarıyla işlenir. Bu olaylar canlı yayınla aynı anda
+ * geldiğinden harita, ebeveynin canlı akışta gördüğüyle tutarlı kalır. Çocuk ekleme/silme
+ * commit sonrası bus'a iç bildirim ({@code child-added} / {@code child-removed}) olarak
+ * yayınlanır ve her düğümde (bu düğüm dahil) aynı yoldan işlenir.
+ *
+ * <p>Açılışta {@link ApplicationReadyEvent} ile sayfa sayfa DB'den ısıtılır; ısınma
+ * bitene kadar çağıranlar eski sorgu yoluna düşer. Periyodik uzlaştırma, bus'ta
+ * kaybolan bildirimleri (ör. dinleme kopması) yakalar.
+ */
+@Slf4j
+@Component
+public class LastKnownLocationCache {
+
+    private static final int WARM_PAGE_SIZE = 500;
+    private static final long ONLINE_WINDOW_SECONDS = 300;
+    private static final String CHILD_ADDED = "child-added";
+    private static final String CHILD_REMOVED = "child-removed";
+
+    /**
+     * @param lat        konum yoksa {@code null}
+     * @param cachedAt   girdinin yazıldığı an (nanoTime); uzlaştırma sırasında gelen yazmaları korumak için
+     */
+    public record Entry(String childId, String parentId, String childName,
+                        Double lat, Double lng, Instant recordedAt, long cachedAt) {
+
+        public boolean hasLocation() {
+            return recordedAt != null;
+        }
+
+        public MapChildLocation toMapLocation(Instant onlineSince) {
+            return new MapChildLocation(childId, childName, lat, lng, recordedAt,
+                    recordedAt != null && recordedAt.isAfter(onlineSince));
+        }
+    }
+
+    private final ChildRepository childRepo;
+    private final CocukKonumRepository konumRepo;
+    private final ObjectMapper objectMapper;
+    private final SseEventBus eventBus;
+
+    private final ConcurrentHashMap<String, Entry> byChild = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> childrenByParent = new ConcurrentHashMap<>();
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    private volatile boolean warm;
+
+    private final Counter hits;
+    private final Counter fallbacks;
+
+    public LastKnownLocationCache(ChildRepository childRepo,
+                                  CocukKonumRepository konumRepo,
+                                  SseEventBus eventBus,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.childRepo = childRepo;
+        this.konumRepo = konumRepo;
+        this.objectMapper = objectMapper;
+        this.eventBus = eventBus;
+        eventBus.subscribe(this::onBusMessage);
+
+        this.hits = Counter.builder("safekid.location.cache.reads").tag("result", "hit").register(meterRegistry);
+        this.fallbacks = Counter.builder("safekid.location.cache.reads").tag("result", "fallback").register(meterRegistry);
+        Gauge.builder("safekid.location.cache.children", byChild, ConcurrentHashMap::size)
+                .description("Son konumu bellekte tutulan çocuk sayısı")
+                .register(meterRegistry);
+    }
+
+    // ── Okuma ───────────────────────────────────────────────────────────────
+
+    /** Ebeveynin haritası; önbellek henüz ısınmadıysa boş döner, çağıran DB'ye düşer. */
+    public Optional<List<MapChildLocation>> mapFor(String parentId) {
+        if (!warm) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        Set<String> childIds = childrenByParent.get(parentId);
+        if (childIds == null) return Optional.of(List.of());
+
+        Instant onlineSince = Instant.now().minusSeconds(ONLINE_WINDOW_SECONDS);
+        return Optional.of(childIds.stream()
+                .map(byChild::get)
+                .filter(e -> e != null)
+                .sorted(Comparator.comparing(Entry::childId))
+                .map(e -> e.toMapLocation(onlineSince))
+                .toList());
+    }
+
+    /** Çocuğun girdisi; önbellek ısınmadıysa ya da çocuk henüz görülmediyse boş. */
+    public Optional<Entry> get(String childId) {
+        Entry entry = warm ? byChild.get(childId) : null;
+        if (entry == null) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry);
+    }
+
+    // ── Yazma ───────────────────────────────────────────────────────────────
+
+    /** Konum kaydından sonra çağrılır; commit'e kadar bekler, yalnızca daha yeni konumu kabul eder. */
+    public void recordFixAfterCommit(ChildEntity child, double lat, double lng, Instant recordedAt) {
+        Entry entry = entryFor(child, lat, lng, recordedAt);
+        afterCommit(() -> upsert(entry));
+    }
+
+    /** Commit sonrası tüm düğümlerin önbelleğine çocuğu (konumsuz) ekler. */
+    public void childAddedAfterCommit(ChildEntity child) {
+        ChildChange change = new ChildChange(child.getCocukUniqueId(), child.getParent().getEbeveynUniqueId(),
+                child.getCocukAdi() + " " + child.getCocukSoyadi());
+        afterCommit(() -> publish(CHILD_ADDED, change));
+    }
+
+    /** Commit sonrası çocuğu tüm düğümlerin önbelleğinden çıkarır. */
+    public void childRemovedAfterCommit(String childId) {
+        ChildChange change = new ChildChange(childId, null, null);
+        afterCommit(() -> publish(CHILD_REMOVED, change));
+    }
+
+    /** {@code child-added} / {@code child-removed} iç bildiriminin verisi. */
+    private record ChildChange(String childId, String parentId, String childName) {}
+
+    private void publish(String event, ChildChange change) {
+        try {
+            eventBus.publish(SseBusMessage.internal(event, objectMapper.writeValueAsString(change)));
+        } catch (Exception e) {
+            // Uzlaştırma en geç bir periyot sonra düzeltir
+            log.warn("{} for child {} could not be published", event, change.childId(), e);
+        }
+    }
+
+    private static Entry entryFor(ChildEntity child, Double lat, Double lng, Instant recordedAt) {
+        return new Entry(child.getCocukUniqueId(), child.getParent().getEbeveynUniqueId(),
+                child.getCocukAdi() + " " + child.getCocukSoyadi(), lat, lng, recordedAt, System.nanoTime());
+    }
+
+    /** Diğer düğümlerde (ve bu düğümde) kaydedilen konumlar ve çocuk ekleme/silmeleri. */
+    private void onBusMessage(SseBusMessage message) {
+        switch (message.event()) {
+            case "location-update" -> onLocationUpdate(message);
+            case CHILD_ADDED, CHILD_REMOVED -> onChildChange(message);
+            default -> {
+                // diğer olaylar önbelleği ilgilendirmez
+            }
+        }
+    }
+
+    private void onChildChange(SseBusMessage message) {
+        try {
+            ChildChange change = objectMapper.readValue(message.json(), ChildChange.class);
+            if (CHILD_REMOVED.equals(message.event())) {
+                remove(change.childId());
+            } else {
+                upsert(new Entry(change.childId(), change.parentId(), change.childName(),
+                        null, null, null, System.nanoTime()));
+            }
+        } catch (Exception e) {
+            log.debug("{} could not be applied to cache", message.event(), e);
+        }
+    }
+
+    private void onLocationUpdate(SseBusMessage message) {
+        try {
+            JsonNode node = objectMapper.readTree(message.json());
+            if (!node.hasNonNull("lastSeenAt")) return;
+            MapChildLocation location = objectMapper.treeToValue(node, MapChildLocation.class);
+            upsert(new Entry(location.childId(), message.parentId(), location.childName(),
+                    location.lat(), location.lng(), location.lastSeenAt(), System.nanoTime()));
+        } catch (Exception e) {
+            log.debug("location-update could not be applied to cache", e);
+        }
+    }
+
+    private void upsert(Entry incoming) {
+        byChild.merge(incoming.childId(), incoming, LastKnownLocationCache::newer);
+        childrenByParent.computeIfAbsent(incoming.parentId(), k -> ConcurrentHashMap.newKeySet())
+                .add(incoming.childId());
+    }
+
+    private void remove(String childId) {
+        Entry removed = byChild.remove(childId);
+        if (removed == null) return;
+        childrenByParent.computeIfPresent(removed.parentId(), (k, set) -> {
+            set.remove(childId);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /** Daha yeni konum kazanır; konumsuz girdi yalnızca çocuk listesini tazeler. */
+    private static Entry newer(Entry current, Entry incoming) {
+        if (!incoming.hasLocation()) {
+            return current.hasLocation()
+                    ? new Entry(current.childId(), incoming.parentId(), incoming.childName(),
+                            current.lat(), current.lng(), current.recordedAt(), incoming.cachedAt())
+                    : incoming;
+        }
+        if (current.hasLocation() && current.recordedAt().isAfter(incoming.recordedAt())) {
+            return current;
+        }
+        return incoming;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ── Isıtma / uzlaştırma ──────────────────────────────────────────────────
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Başka düğümde eklenen/silinen çocukları yakalar. Yalnızca uzlaştırma başlamadan
+     * önce yazılmış ve DB'de artık olmayan çocuklar silinir.
+     */
+    @Scheduled(fixedDelayString = "${safekid.location.cache.reconcile-interval-ms:600000}",
+            initialDelayString = "${safekid.location.cache.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        reload();
+    }
+
+    private void reload() {
+        if (!loading.compareAndSet(false, true)) return;
+        long startedAt = System.nanoTime();
+        try {
+            Set<String> seen = new HashSet<>();
+            String afterId = "";
+            while (true) {
+                List<ChildEntity> page = childRepo.findPageWithParentAfter(afterId, Limit.of(WARM_PAGE_SIZE));
+                if (page.isEmpty()) break;
+
+                List<String> ids = page.stream().map(ChildEntity::getCocukUniqueId).toList();
+                Map<String, Object[]> latest = new HashMap<>();
+                for (Object[] row : konumRepo.findLatestLocationsByChildIds(ids)) {
+                    latest.put((String) row[0], row);
+                }
+
+                for (ChildEntity child : page) {
+                    Object[] row = latest.get(child.getCocukUniqueId());
+                    upsert(row == null
+                            ? entryFor(child, null, null, null)
+                            : entryFor(child, (Double) row[1], (Double) row[2], toInstant(row[3])));
+                    seen.add(child.getCocukUniqueId());
+                }
+                afterId = page.getLast().getCocukUniqueId();
+            }
+
+            for (Entry entry : byChild.values()) {
+                if (!seen.contains(entry.childId()) && entry.cachedAt() - startedAt < 0) {
+                    remove(entry.childId());
+                }
+            }
+
+            if (!warm) {
+                log.info("Last-known-location cache warmed with {} children in {} ms",
+                        seen.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            }
+            warm = true;
+        } catch (Exception e) {
+            log.error("Last-known-location cache reload failed", e);
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    static Instant toInstant(Object rawTs) {
+        return rawTs instanceof Instant i ? i :
+                rawTs instanceof java.sql.Timestamp ts ? ts.toInstant() :
+                        rawTs instanceof java.time.OffsetDateTime odt ? odt.toInstant() :
+                                Instant.now();
+    }
+}
@@ -0,0 +1,34 @@
+package com.safekid.child.service;
+
+import com.safekid.child.repository.CocukKonumRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code cocuk_son_konum}'u açılışta geçmişten tamamlar.
+ *
+ * <p>Tüm bean'ler oluştuktan sonra, web sunucusu istek kabul etmeden önce senkron
+ * çalışır; bu düğüm konum almaya başladığında tablo çocuk başına güncel olur.
+ * Başka düğümler o sırada konum yazıyorsa çakışmaz: yalnızca daha yeni konum kazanır.
+ */
+@Slf4j
+@Component
+public class LatestLocationBackfill implements SmartInitializingSingleton {
+
+    private final CocukKonumRepository konumRepo;
+
+    public LatestLocationBackfill(CocukKonumRepository konumRepo) {
+        this.konumRepo = konumRepo;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long startedAt = System.nanoTime();
+        int backfilled = konumRepo.backfillLatest();
+        if (backfilled > 0) {
+            log.info("Backfilled cocuk_son_konum for {} children from history in {} ms",
+                    backfilled, (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+}
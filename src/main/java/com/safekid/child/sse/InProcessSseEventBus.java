@@ -0,0 +1,28 @@
+package com.safekid.child.sse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/** Tek düğümlü kurulum: olaylar doğrudan yerel abonelere verilir. */
+@Component
+@ConditionalOnProperty(name = "safekid.sse.bus", havingValue = "in-process", matchIfMissing = true)
+public class InProcessSseEventBus implements SseEventBus {
+
+    private final List<Consumer<SseBusMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(SseBusMessage message) {
+        for (Consumer<SseBusMessage> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<SseBusMessage> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,418 @@
+package com.safekid.child.sse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL LISTEN/NOTIFY üzerinden çok düğümlü SSE yayını.
+ *
+ * <p>Yayın: olay önce yerel abonelere verilir, sonra sınırlı bir kuyruğa eklenir.
+ * Tek bir yayıncı sanal thread kuyruktan toplu olarak alır, olayları 8000 baytlık
+ * NOTIFY sınırının altında kalan yüklere paketler ve hepsini tek sorguda
+ * ({@code pg_notify ... FROM unnest(?)}) gönderir. Sınırı tek başına aşan olay
+ * base64 parçalara bölünür, alıcıda birleştirilir.
+ *
+ * <p>Geri basınç: birleştirilebilir olaylar (konum) sınırlı kuyruktan gider ve kuyruk
+ * doluyken atılır, bir sonraki konum zaten yerine geçer. Alarmlar ve iç bildirimler
+ * ayrı, sınırsız bir kuyruktan ve kendi yayıncı thread'inden gider; {@link #publish}
+ * transactional konum kaydı içinden çağrıldığı için hiçbir durumda bloklamaz.
+ *
+ * <p>Hata: NOTIFY başarısız olursa alarm grubu atılmaz, kuyruğun başında tutulup
+ * artan beklemeyle yeniden denenir. Yine de atılan olay olursa (başarısız konum grubu,
+ * kodlanamayan olay) diğer düğümlere bir boşluk işareti gönderilir; onlar da
+ * {@link #onGap} dinleyicilerini çağırır ve tekrar oynatma istemciye resync bildirir.
+ *
+ * <p>Dinleme: Hikari havuzundan bağlantı tutmamak için ayrı bir JDBC bağlantısı açılır;
+ * koparsa geri çekilmeyle yeniden bağlanılır. Kopukken gelen NOTIFY'lar kaybolduğu
+ * için her (yeniden) LISTEN sonrası {@link #onGap} dinleyicileri çağrılır.
+ * Düğüm kendi yayınını yok sayar.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "safekid.sse.bus", havingValue = "postgres")
+public class PostgresSseEventBus implements SseEventBus {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    /** Parça çerçevesinin (düğüm, id, sıra) payı. */
+    private static final int FRAME_OVERHEAD = 160;
+    /** İç bildirim: gönderen düğüm olay attı, alıcılar boşluk işaretlemeli. */
+    private static final String GAP_EVENT = "bus-gap";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final SseProperties.Postgres properties;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Consumer<SseBusMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> gapListeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<SseBusMessage> outbox;
+    // Alarmlar ve iç bildirimler: atılmaz, çağıran beklemez; hacmi konumların yanında küçüktür
+    private final BlockingQueue<SseBusMessage> alertOutbox = new LinkedBlockingQueue<>();
+    // Gönderilmeyi bekleyen boşluk işareti varken yenisi eklenmez
+    private final AtomicBoolean gapQueued = new AtomicBoolean();
+    // chunkId -> parçalar; yalnızca dinleyici thread'inden erişilir
+    private final Map<String, String[]> partial = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+            return size() > 64;
+        }
+    };
+
+    private final Counter sent;
+    private final Counter notifies;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter received;
+
+    private volatile boolean running;
+    private Thread publisher;
+    private Thread alertPublisher;
+    private Thread listener;
+
+    public PostgresSseEventBus(JdbcTemplate jdbcTemplate,
+                               DataSourceProperties dataSourceProperties,
+                               ObjectMapper objectMapper,
+                               SseProperties sseProperties,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.properties = sseProperties.getPostgres();
+        if (!CHANNEL.matcher(properties.getChannel()).matches()) {
+            throw new IllegalStateException("Geçersiz NOTIFY kanalı: " + properties.getChannel());
+        }
+        this.outbox = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        this.sent = Counter.builder("safekid.sse.bus.messages").tag("result", "sent").register(meterRegistry);
+        this.dropped = Counter.builder("safekid.sse.bus.messages").tag("result", "dropped").register(meterRegistry);
+        this.failed = Counter.builder("safekid.sse.bus.messages").tag("result", "failed").register(meterRegistry);
+        this.received = Counter.builder("safekid.sse.bus.messages").tag("result", "received").register(meterRegistry);
+        this.notifies = Counter.builder("safekid.sse.bus.notifies").register(meterRegistry);
+        Gauge.builder("safekid.sse.bus.queue.depth", outbox, BlockingQueue::size)
+                .tag("lane", "coalesced").register(meterRegistry);
+        Gauge.builder("safekid.sse.bus.queue.depth", alertOutbox, BlockingQueue::size)
+                .tag("lane", "alert").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        publisher = Thread.ofVirtual().name("sse-bus-publisher").start(() -> publishLoop(outbox, false));
+        alertPublisher = Thread.ofVirtual().name("sse-bus-alert-publisher").start(() -> publishLoop(alertOutbox, true));
+        listener = Thread.ofVirtual().name("sse-bus-listener").start(this::listenLoop);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        publisher.interrupt();
+        alertPublisher.interrupt();
+        listener.interrupt();
+    }
+
+    @Override
+    public void subscribe(Consumer<SseBusMessage> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onGap(Runnable listener) {
+        gapListeners.add(listener);
+    }
+
+    @Override
+    public void publish(SseBusMessage message) {
+        deliverLocal(message);
+
+        if (message.coalesceKey() == null) {
+            alertOutbox.add(message);
+        } else if (!outbox.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    private void deliverLocal(SseBusMessage message) {
+        for (Consumer<SseBusMessage> l : listeners) {
+            try {
+                l.accept(message);
+            } catch (Exception e) {
+                log.warn("SSE bus listener failed", e);
+            }
+        }
+    }
+
+    // ── Yayın ───────────────────────────────────────────────────────────────
+
+    /**
+     * @param retry {@code true} ise (alarm kuyruğu) başarısız grup atılmaz: başta tutulur,
+     *              yeni olaylar arkasına eklenir ve artan beklemeyle yeniden gönderilir
+     */
+    private void publishLoop(BlockingQueue<SseBusMessage> queue, boolean retry) {
+        List<SseBusMessage> batch = new ArrayList<>(properties.getBatchSize());
+        long baseDelay = properties.getReconnectDelay().toMillis();
+        long delay = baseDelay;
+        while (running) {
+            List<String> payloads;
+            try {
+                if (batch.isEmpty()) batch.add(queue.take());
+                queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                payloads = encode(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Kodlanamayan olay yeniden denemeyle düzelmez
+                failed.increment(batch.size());
+                log.warn("SSE bus could not encode {} messages, dropping", batch.size(), e);
+                dropBatch(batch);
+                continue;
+            }
+            try {
+                sendNotifies(payloads);
+                sent.increment(batch.size());
+                notifies.increment(payloads.size());
+                if (batch.stream().anyMatch(PostgresSseEventBus::isGapMarker)) gapQueued.set(false);
+                batch.clear();
+                delay = baseDelay;
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                if (retry) {
+                    log.warn("SSE bus NOTIFY failed for {} messages, retrying in {} ms", batch.size(), delay, e);
+                } else {
+                    log.warn("SSE bus NOTIFY failed for {} messages, dropping", batch.size(), e);
+                    dropBatch(batch);
+                }
+                sleepQuietly(delay);
+                delay = Math.min(delay * 2, Math.max(baseDelay, properties.getMaxRetryDelay().toMillis()));
+            }
+        }
+    }
+
+    /** Grup diğer düğümlere hiç ulaşmayacak: onlara boşluk işareti gönderilir. */
+    private void dropBatch(List<SseBusMessage> batch) {
+        boolean hadMarker = batch.stream().anyMatch(PostgresSseEventBus::isGapMarker);
+        batch.clear();
+        if (hadMarker) gapQueued.set(false);
+        if (gapQueued.compareAndSet(false, true)) {
+            alertOutbox.add(SseBusMessage.internal(GAP_EVENT, "{}"));
+        }
+    }
+
+    private static boolean isGapMarker(SseBusMessage message) {
+        return message.isInternal() && GAP_EVENT.equals(message.event());
+    }
+
+    /** Olayları NOTIFY sınırına sığan JSON yüklerine paketler. */
+    List<String> encode(List<SseBusMessage> batch) throws IOException {
+        int limit = properties.getMaxPayloadBytes();
+        List<String> payloads = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentBytes = 0;
+
+        for (SseBusMessage message : batch) {
+            String item = writeMessage(message);
+            int bytes = item.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + FRAME_OVERHEAD > limit) {
+                payloads.addAll(chunk(envelope(List.of(item)), limit));
+                continue;
+            }
+            if (currentBytes + bytes + FRAME_OVERHEAD > limit) {
+                payloads.add(envelope(current));
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(item);
+            currentBytes += bytes;
+        }
+        if (!current.isEmpty()) payloads.add(envelope(current));
+        return payloads;
+    }
+
+    private String writeMessage(SseBusMessage message) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("i", message.id());
+            gen.writeStringField("p", message.parentId());
+            gen.writeStringField("e", message.event());
+            if (message.coalesceKey() != null) gen.writeStringField("k", message.coalesceKey());
+            gen.writeFieldName("d");
+            gen.writeRawValue(message.json());
+            gen.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    private String envelope(List<String> items) {
+        return "{\"o\":\"" + nodeId + "\",\"m\":[" + String.join(",", items) + "]}";
+    }
+
+    private List<String> chunk(String payload, int limit) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        int chunkBytes = (limit - FRAME_OVERHEAD) / 4 * 3;
+        int total = (bytes.length + chunkBytes - 1) / chunkBytes;
+        String chunkId = UUID.randomUUID().toString();
+
+        List<String> frames = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            byte[] part = Arrays.copyOfRange(bytes, i * chunkBytes, Math.min(bytes.length, (i + 1) * chunkBytes));
+            frames.add("{\"o\":\"" + nodeId + "\",\"c\":\"" + chunkId + "\",\"i\":" + i + ",\"t\":" + total
+                    + ",\"x\":\"" + Base64.getEncoder().encodeToString(part) + "\"}");
+        }
+        return frames;
+    }
+
+    private void sendNotifies(List<String> payloads) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Array array = connection.createArrayOf("text", payloads.toArray());
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT pg_notify(?, payload) FROM unnest(?) AS payload")) {
+                ps.setString(1, properties.getChannel());
+                ps.setArray(2, array);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        // pg_notify void döner
+                    }
+                }
+            } finally {
+                array.free();
+            }
+            return null;
+        });
+    }
+
+    // ── Dinleme ─────────────────────────────────────────────────────────────
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("LISTEN " + properties.getChannel());
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                log.info("SSE bus listening on channel '{}' (node {})", properties.getChannel(), nodeId);
+                // LISTEN öncesi (kopukken ya da açılışta) gelen NOTIFY'lar bu düğüme hiç ulaşmadı
+                notifyGap();
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(1000);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) {
+                        handle(n.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("SSE bus listener disconnected, reconnecting", e);
+                sleepQuietly(properties.getReconnectDelay().toMillis());
+            }
+        }
+    }
+
+    private void notifyGap() {
+        for (Runnable l : gapListeners) {
+            try {
+                l.run();
+            } catch (Exception e) {
+                log.warn("SSE bus gap listener failed", e);
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        try {
+            JsonNode root = objectMapper.readTree(payload);
+            if (nodeId.equals(root.path("o").asText())) return;
+
+            if (root.has("c")) {
+                String assembled = assemble(root);
+                if (assembled != null) handle(assembled);
+                return;
+            }
+            for (JsonNode m : root.path("m")) {
+                received.increment();
+                SseBusMessage message = new SseBusMessage(
+                        m.path("i").asText(),
+                        m.hasNonNull("p") ? m.path("p").asText() : null,
+                        m.path("e").asText(),
+                        m.hasNonNull("k") ? m.path("k").asText() : null,
+                        objectMapper.writeValueAsString(m.path("d")));
+                if (isGapMarker(message)) {
+                    // Gönderen düğüm olay attı; bu düğüm onları hiç görmeyecek
+                    notifyGap();
+                } else {
+                    deliverLocal(message);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("SSE bus payload could not be parsed", e);
+        }
+    }
+
+    /** Tüm parçalar geldiyse birleşik yükü döner. */
+    private String assemble(JsonNode frame) {
+        String chunkId = frame.path("c").asText();
+        int total = frame.path("t").asInt();
+        String[] parts = partial.computeIfAbsent(chunkId, k -> new String[total]);
+        parts[frame.path("i").asInt()] = frame.path("x").asText();
+        for (String part : parts) {
+            if (part == null) return null;
+        }
+        partial.remove(chunkId);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (String part : parts) {
+            joined.writeBytes(Base64.getDecoder().decode(part));
+        }
+        return joined.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.safekid.child.sse;
+
+import com.safekid.auth.util.IdGenerator;
+
+/**
+ * Düğümler arası taşınan SSE olayı. Veri bir kez JSON'a çevrilir; her bağlantı
+ * ve her düğüm aynı metni yazar.
+ *
+ * @param id          yayında bir kez üretilen ULID; tüm düğümlerde aynıdır ve SSE {@code id} alanı olur
+ * @param parentId    {@code null} ise düğümler arası iç bildirim (bkz. {@link #internal})
+ * @param coalesceKey {@code null} ise olay birleştirilmez/atılmaz (alarmlar)
+ */
+public record SseBusMessage(String id, String parentId, String event, String coalesceKey, String json) {
+
+    /**
+     * Önbellek geçersizleştirme gibi düğümler arası bildirim. Hiçbir bağlantıya yazılmaz
+     * ve tekrar tamponuna girmez; yalnızca bus aboneleri görür. Alarmlar gibi atılmaz.
+     */
+    public static SseBusMessage internal(String event, String json) {
+        return new SseBusMessage(IdGenerator.newMonotonicId(), null, event, null, json);
+    }
+
+    public boolean isInternal() {
+        return parentId == null;
+    }
+}
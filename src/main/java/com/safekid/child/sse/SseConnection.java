@@ -0,0 +1,252 @@
+package com.safekid.child.sse;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tek bir SSE bağlantısı: sınırlı giden kuyruk + aktör tarzı yazıcı.
+ *
+ * <p>{@link #enqueue} hiçbir zaman ağ I/O'su yapmaz; kuyruk boşken ilk olay geldiğinde
+ * bir drain görevi executor'a verilir, görev gönderilebilecek olay kalmayana kadar
+ * yazar ve biter. Böylece bağlantı başına en fazla bir yazıcı çalışır ve boşta thread
+ * tutulmaz.
+ *
+ * <p>Birleştirme anahtarı olan olaylar (ör. bir çocuğun konumu) "son değer kazanır"
+ * mantığıyla tutulur ve aynı anahtar için en az {@code minSendInterval} arayla yazılır;
+ * arada gelenler bekleyen değeri günceller. Anahtarsız olaylar (geofence ihlali,
+ * AI alarmı) asla birleştirilmez ve kuyruk dolduğunda atılmaz: yer açmak için
+ * anahtarlı olaylar feda edilir, o da yoksa kapasite aşılır.
+ */
+class SseConnection {
+
+    /** Kuyruğa eklemenin sonucu; metrikler için. */
+    enum Offer { ACCEPTED, COALESCED, DROPPED_OLDEST, DROPPED_NEWEST, OVER_CAPACITY, CLOSED }
+
+    /**
+     * @param id          SSE olay id'si; istemci yeniden bağlanınca {@code Last-Event-ID} olarak döner
+     * @param name        olay adı; {@code null} ise keepalive yorumu
+     * @param json        önceden serileştirilmiş veri
+     * @param coalesceKey aynı anahtarlı bekleyen olay bununla değiştirilir; {@code null} ise birleştirilmez
+     */
+    record Outbound(String id, String name, String json, String coalesceKey) {
+        static final Outbound KEEPALIVE = new Outbound(null, null, null, "keepalive");
+
+        static Outbound of(SseBusMessage message) {
+            return new Outbound(message.id(), message.event(), message.json(), message.coalesceKey());
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (name == null) return SseEmitter.event().comment("keepalive");
+            SseEmitter.SseEventBuilder event = SseEmitter.event();
+            if (id != null) event.id(id);
+            return event.name(name).data(json, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    @Getter
+    private final String parentId;
+    @Getter
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final SseProperties.OverflowPolicy policy;
+    private final long minIntervalNanos;
+    private final Executor writer;
+    private final ScheduledExecutorService timer;
+    private final Runnable onBroken;
+
+    // Aşağıdaki üç alan queue kilidiyle korunur
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    private final Map<String, Long> lastSentNanos = new HashMap<>();
+    private boolean timerArmed;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean closed;
+    /** Son başarılı yazma; boşta olmayan bağlantıya heartbeat gönderilmez. */
+    private volatile long lastWriteNanos = System.nanoTime();
+    /** Süren bir {@code send} çağrısının başlangıcı; 0 ise yazma yok. */
+    private volatile long writingSinceNanos;
+
+    SseConnection(String parentId, SseEmitter emitter, SseProperties properties,
+                  Executor writer, ScheduledExecutorService timer, Runnable onBroken) {
+        this.parentId = parentId;
+        this.emitter = emitter;
+        this.capacity = properties.getQueueCapacity();
+        this.policy = properties.getOverflowPolicy();
+        this.minIntervalNanos = properties.getMinSendInterval().toNanos();
+        this.writer = writer;
+        this.timer = timer;
+        this.onBroken = onBroken;
+    }
+
+    Offer enqueue(Outbound event) {
+        if (closed) return Offer.CLOSED;
+
+        Offer result;
+        synchronized (queue) {
+            result = offerLocked(event);
+        }
+        if (result != Offer.DROPPED_NEWEST) scheduleDrain();
+        return result;
+    }
+
+    private Offer offerLocked(Outbound event) {
+        String key = event.coalesceKey();
+        if (key != null && policy == SseProperties.OverflowPolicy.COALESCE) {
+            // Aynı anahtarlı bekleyen olay varsa kuyruk dolu olmasa da yerine geç:
+            // istemci zaten yalnızca en güncel konumu görmek ister
+            for (Iterator<Outbound> it = queue.iterator(); it.hasNext(); ) {
+                if (key.equals(it.next().coalesceKey())) {
+                    it.remove();
+                    queue.addLast(event);
+                    return Offer.COALESCED;
+                }
+            }
+        }
+        if (queue.size() < capacity) {
+            queue.addLast(event);
+            return Offer.ACCEPTED;
+        }
+        if (key != null && policy == SseProperties.OverflowPolicy.DROP_NEWEST) {
+            return Offer.DROPPED_NEWEST;
+        }
+        if (evictOldestCoalescable()) {
+            queue.addLast(event);
+            return Offer.DROPPED_OLDEST;
+        }
+        // Kuyruk tamamen anahtarsız (alarm) olaylarla dolu
+        if (key != null) return Offer.DROPPED_NEWEST;
+        queue.addLast(event);
+        return Offer.OVER_CAPACITY;
+    }
+
+    private boolean evictOldestCoalescable() {
+        for (Iterator<Outbound> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().coalesceKey() != null) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int depth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Son başarılı yazmadan bu yana geçen süre. */
+    long idleNanos(long now) {
+        return now - lastWriteNanos;
+    }
+
+    /** Tek bir yazma {@code timeoutNanos}'tan uzun süredir bloklu mu (ölü soket). */
+    boolean isStalled(long now, long timeoutNanos) {
+        long since = writingSinceNanos;
+        return since != 0 && now - since > timeoutNanos;
+    }
+
+    /**
+     * Bağlantıyı kapalı işaretler ve bekleyen olayları bırakır.
+     * {@code complete()} ÇAĞRILMAZ: Tomcat'in async error dispatch döngüsünü tetikler.
+     */
+    void close() {
+        closed = true;
+        synchronized (queue) {
+            queue.clear();
+            lastSentNanos.clear();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Outbound next;
+            synchronized (queue) {
+                next = closed ? null : pollSendable(System.nanoTime());
+            }
+            if (next == null) {
+                draining.set(false);
+                // set(false) ile son kontrol arasında gelen olay kaçmasın
+                boolean pending;
+                synchronized (queue) {
+                    pending = !closed && hasSendable(System.nanoTime());
+                }
+                if (pending && draining.compareAndSet(false, true)) continue;
+                return;
+            }
+            try {
+                writingSinceNanos = System.nanoTime();
+                emitter.send(next.toEvent());
+                lastWriteNanos = System.nanoTime();
+            } catch (Throwable t) {
+                // Client bağlantısı kopmuş
+                close();
+                onBroken.run();
+            } finally {
+                writingSinceNanos = 0;
+            }
+        }
+    }
+
+    /**
+     * Sıradaki gönderilebilir olayı çıkarır: anahtarsızlar hemen, anahtarlılar ancak
+     * aynı anahtar için minimum aralık dolduysa. Bekleyen ama henüz zamanı gelmemiş
+     * olay varsa en erken uygun anda drain'i yeniden tetikleyecek zamanlayıcı kurulur.
+     */
+    private Outbound pollSendable(long now) {
+        long earliest = Long.MAX_VALUE;
+        for (Iterator<Outbound> it = queue.iterator(); it.hasNext(); ) {
+            Outbound event = it.next();
+            long readyAt = readyAt(event, now);
+            if (readyAt <= now) {
+                it.remove();
+                if (event.coalesceKey() != null) lastSentNanos.put(event.coalesceKey(), now);
+                return event;
+            }
+            earliest = Math.min(earliest, readyAt);
+        }
+        if (earliest != Long.MAX_VALUE && !timerArmed) {
+            timerArmed = true;
+            timer.schedule(() -> {
+                synchronized (queue) {
+                    timerArmed = false;
+                }
+                scheduleDrain();
+            }, earliest - now, TimeUnit.NANOSECONDS);
+        }
+        return null;
+    }
+
+    private boolean hasSendable(long now) {
+        for (Outbound event : queue) {
+            if (readyAt(event, now) <= now) return true;
+        }
+        return false;
+    }
+
+    private long readyAt(Outbound event, long now) {
+        if (event.coalesceKey() == null || minIntervalNanos <= 0) return now;
+        Long last = lastSentNanos.get(event.coalesceKey());
+        return last == null ? now : last + minIntervalNanos;
+    }
+}
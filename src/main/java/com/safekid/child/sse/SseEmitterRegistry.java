@@ -1,26 +1,173 @@
 package com.safekid.child.sse;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import com.safekid.auth.util.IdGenerator;
+import com.safekid.child.dto.MapChildLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
+/**
+ * Ebeveyn başına canlı SSE bağlantıları.
+ *
+ * <p>ASYNC modda ({@link SseProperties#getFanOut()}) olaylar her bağlantının sınırlı
+ * kuyruğuna eklenir ve sanal thread'lerde yazılır; {@link #sendEvent} ağ I/O'su yapmaz,
+ * bu yüzden transactional konum kaydı yavaş bir ebeveyn bağlantısını beklemez.
+ * Geride kalan istemciye {@link SseProperties.OverflowPolicy} uygulanır.
+ * Bağlantı haritası {@link ConcurrentHashMap} olduğu için kayıt/silme ebeveyn anahtarı
+ * bazında kilitlenir; bağlantı listesi copy-on-write olduğundan yayın kilitsiz okunur.
+ *
+ * <p>Olaylar doğrudan yerel bağlantılara değil {@link SseEventBus}'a yayınlanır; bus
+ * olayı ebeveynin bağlı olduğu her düğümün registry'sine geri verir. Veri yayında bir
+ * kez JSON'a çevrilir.
+ *
+ * <p>Her olayın bir ULID id'si vardır ve {@link SseReplayBuffer}'da tutulur; istemci
+ * {@code Last-Event-ID} ile yeniden bağlandığında yalnızca kaçırdığı olaylar tekrar
+ * yazılır. Tampon yetmiyorsa önce {@code resync} olayı gönderilir.
+ */
+@Slf4j
 @Component
 public class SseEmitterRegistry {
 
-    // parentId -> emitter listesi
-    private final ConcurrentHashMap<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    // parentId -> bağlantı listesi
+    private final ConcurrentHashMap<String, List<SseConnection>> connections = new ConcurrentHashMap<>();
+
+    private final SseProperties properties;
+    private final SseEventBus eventBus;
+    private final ObjectMapper objectMapper;
+    private final SseReplayBuffer replay;
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    // min-send-interval bekleyen drain'leri yeniden tetikler ve heartbeat tiklerini atar;
+    // kendisi hiç ağ I/O'su yapmaz
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("sse-timer").factory());
+    private final Map<SseConnection.Offer, Counter> offers = new EnumMap<>(SseConnection.Offer.class);
+
+    // Heartbeat dilimleri: her tikte yalnızca biri dolaşılır
+    private final List<Set<SseConnection>> heartbeatBuckets;
+    private final AtomicLong heartbeatTicks = new AtomicLong();
+    private final Counter reapedWriteFailed;
+    private final Counter reapedStalled;
+    private final Timer heartbeatTick;
+    // gap=true: tampon yetmedi, resync gönderildi
+    private final Map<Boolean, Counter> replays = new HashMap<>();
+
+    /** İstemciye tam durumu ({@code /parent/children/map}) yeniden çekmesini söyler. */
+    private static final SseConnection.Outbound RESYNC =
+            new SseConnection.Outbound(null, "resync", "{\"reason\":\"replay-gap\"}", null);
+
+    public SseEmitterRegistry(SseProperties properties,
+                              SseEventBus eventBus,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.eventBus = eventBus;
+        this.objectMapper = objectMapper;
+        this.replay = new SseReplayBuffer(properties.getReplay());
+        for (SseConnection.Offer offer : SseConnection.Offer.values()) {
+            offers.put(offer, Counter.builder("safekid.sse.events")
+                    .tag("result", offer.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+                    .register(meterRegistry));
+        }
+        for (boolean gap : new boolean[]{false, true}) {
+            replays.put(gap, Counter.builder("safekid.sse.replays")
+                    .tag("result", gap ? "resync" : "complete")
+                    .register(meterRegistry));
+        }
+        int buckets = Math.max(1, properties.getHeartbeat().getBuckets());
+        this.heartbeatBuckets = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            heartbeatBuckets.add(ConcurrentHashMap.newKeySet());
+        }
+        this.reapedWriteFailed = Counter.builder("safekid.sse.connections.reaped")
+                .tag("reason", "write-failed").register(meterRegistry);
+        this.reapedStalled = Counter.builder("safekid.sse.connections.reaped")
+                .tag("reason", "stalled").register(meterRegistry);
+        this.heartbeatTick = Timer.builder("safekid.sse.heartbeat.tick")
+                .description("Tek heartbeat diliminin işlenme süresi")
+                .register(meterRegistry);
+        Gauge.builder("safekid.sse.connections", this, r -> r.all().count())
+                .register(meterRegistry);
+        Gauge.builder("safekid.sse.queue.depth", this,
+                        r -> r.all().mapToInt(SseConnection::depth).sum())
+                .description("Tüm bağlantılarda yazılmayı bekleyen olay sayısı")
+                .register(meterRegistry);
+        Gauge.builder("safekid.sse.queue.max-depth", this,
+                        r -> r.all().mapToInt(SseConnection::depth).max().orElse(0))
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        eventBus.subscribe(this::dispatch);
+        eventBus.onGap(replay::markGap);
+
+        long tickNanos = properties.getHeartbeat().getInterval().toNanos() / heartbeatBuckets.size();
+        timer.scheduleAtFixedRate(this::heartbeatTick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
 
     public SseEmitter register(String parentId) {
+        return register(parentId, null);
+    }
+
+    /**
+     * @param lastEventId istemcinin aldığı son olay id'si ({@code Last-Event-ID} başlığı);
+     *                    {@code null} ise tekrar oynatma yapılmaz
+     */
+    public SseEmitter register(String parentId, String lastEventId) {
         SseEmitter emitter = new SseEmitter(0L); // 0L = sonsuz, timeout yok
 
-        emitters.computeIfAbsent(parentId, k -> new CopyOnWriteArrayList<>())
-                .add(emitter);
+        SseConnection[] self = new SseConnection[1];
+        Runnable cleanup = () -> removeConnection(self[0]);
+        Runnable onBroken = () -> {
+            reapedWriteFailed.increment();
+            removeConnection(self[0]);
+        };
+        self[0] = new SseConnection(parentId, emitter, properties, writers, timer, onBroken);
 
-        Runnable cleanup = () -> removeEmitter(parentId, emitter);
+        if (lastEventId == null || lastEventId.isBlank()) {
+            addConnection(self[0]);
+        } else {
+            // Bağlantı ekleme + tekrar oynatma, dispatch ile aynı kilit altında:
+            // araya giren olay ne kaçar ne de iki kez yazılır
+            SseReplayBuffer.Ring ring = replay.ring(parentId);
+            synchronized (ring) {
+                addConnection(self[0]);
+                SseReplayBuffer.Replay missed = ring.since(lastEventId.trim());
+                if (missed.gap()) {
+                    replays.get(true).increment();
+                    deliver(self[0], RESYNC);
+                } else {
+                    replays.get(false).increment();
+                }
+                for (SseBusMessage message : missed.events()) {
+                    deliver(self[0], SseConnection.Outbound.of(message));
+                }
+            }
+        }
 
         emitter.onCompletion(cleanup);
         emitter.onTimeout(cleanup);
@@ -29,67 +176,135 @@ public class SseEmitterRegistry {
         return emitter;
     }
 
-    private void removeEmitter(String parentId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.get(parentId);
-        if (list != null) {
-            list.remove(emitter);
-            if (list.isEmpty()) {
-                emitters.remove(parentId);
-            }
-        }
+    private void addConnection(SseConnection connection) {
+        connections.computeIfAbsent(connection.getParentId(), k -> new CopyOnWriteArrayList<>())
+                .add(connection);
+        bucketOf(connection).add(connection);
+    }
+
+    private void removeConnection(SseConnection connection) {
+        connection.close();
+        bucketOf(connection).remove(connection);
+        connections.computeIfPresent(connection.getParentId(), (k, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private Set<SseConnection> bucketOf(SseConnection connection) {
+        return heartbeatBuckets.get(Math.floorMod(System.identityHashCode(connection), heartbeatBuckets.size()));
     }
 
     /**
-     * Her 25 saniyede bir keepalive gönderir.
-     * Bağlantısı kopmuş emitter'lar tespit edilerek listeden çıkarılır.
+     * Her tikte bir heartbeat dilimini dolaşır; böylece her bağlantı {@code interval}'de
+     * bir ziyaret edilir ama iş tüm aralığa yayılır. Keepalive yalnızca kuyruğa eklenir,
+     * yazma bağlantının kendi yazıcısındadır; bloklu bir soket kimsenin heartbeat'ini
+     * geciktirmez. İnterval boyunca zaten olay yazılmış bağlantı atlanır.
+     * Tek yazması {@code stall-timeout}'tan uzun süren bağlantı ölü sayılıp kaldırılır.
      */
-    @Scheduled(fixedRate = 25_000)
-    public void sendHeartbeat() {
-        emitters.forEach((parentId, list) -> {
-            if (list == null || list.isEmpty()) return;
-            list.removeIf(emitter -> {
-                try {
-                    emitter.send(SseEmitter.event().comment("keepalive"));
-                    return false;
-                } catch (Throwable t) {
-                    // Client bağlantısı kopmuş — sadece listeden çıkar,
-                    // complete() ÇAĞIRMA: yeni async dispatch tetikler ve hata üretir.
-                    return true;
+    void heartbeatTick() {
+        long start = System.nanoTime();
+        try {
+            int index = (int) (heartbeatTicks.getAndIncrement() % heartbeatBuckets.size());
+            long idleThreshold = properties.getHeartbeat().getInterval().toNanos()
+                    - properties.getHeartbeat().getInterval().toNanos() / heartbeatBuckets.size();
+            long stallTimeout = properties.getHeartbeat().getStallTimeout().toNanos();
+
+            for (SseConnection connection : heartbeatBuckets.get(index)) {
+                if (connection.isStalled(start, stallTimeout)) {
+                    // complete() ÇAĞIRMA: Tomcat'in async error dispatch döngüsünü tetikler.
+                    reapedStalled.increment();
+                    removeConnection(connection);
+                } else if (connection.idleNanos(start) >= idleThreshold) {
+                    offers.get(connection.enqueue(SseConnection.Outbound.KEEPALIVE)).increment();
                 }
-            });
-            if (list.isEmpty()) emitters.remove(parentId);
-        });
+            }
+        } catch (Exception e) {
+            // scheduleAtFixedRate istisnada tikleri durdurur; asla dışarı sızmasın
+            log.warn("SSE heartbeat tick failed", e);
+        } finally {
+            heartbeatTick.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
-     * Generic SSE event gönderir.
-     * IOException / broken-pipe durumunda emitter sessizce temizlenir,
+     * Generic SSE event gönderir. Bu yolla gönderilen olaylar (geofence-breach,
+     * ai-anomaly-alert) asla birleştirilmez ve kuyruk taşmasında atılmaz.
+     * IOException / broken-pipe durumunda bağlantı sessizce temizlenir,
      * exception dışarıya sızmaz.
      */
     public void sendEvent(String parentId, String eventName, Object data) {
-        List<SseEmitter> list = emitters.get(parentId);
-        if (list == null) return;
+        publish(parentId, eventName, null, data);
+    }
+
+    /**
+     * Son değer kazanır: aynı {@code coalesceKey} için henüz yazılmamış olay varsa
+     * yenisiyle değiştirilir ve anahtar başına en fazla {@code min-send-interval}'da
+     * bir gönderilir. Yalnızca durum bildiren (eskisi anlamını yitiren) olaylar için.
+     */
+    public void sendLatest(String parentId, String eventName, String coalesceKey, Object data) {
+        publish(parentId, eventName, eventName + ':' + coalesceKey, data);
+    }
+
+    /** Konum güncellemesi için kısayol; (ebeveyn, çocuk) başına son konum kazanır. */
+    public void send(String parentId, MapChildLocation location) {
+        sendLatest(parentId, "location-update", location.childId(), location);
+    }
 
+    private void publish(String parentId, String eventName, String coalesceKey, Object data) {
+        String json;
         try {
-            list.removeIf(emitter -> {
-                try {
-                    emitter.send(SseEmitter.event().name(eventName).data(data));
-                    return false;
-                } catch (Throwable t) {
-                    // Client bağlantısı kopmuş — sadece listeden çıkar.
-                    // complete() ÇAĞIRMA: Tomcat'in async error dispatch döngüsünü tetikler.
-                    return true;
-                }
-            });
-        } catch (Throwable ignored) {
-            // removeIf kendisi bir şeyler fırlatırsa da dışarıya sızmasın
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("SSE verisi JSON'a çevrilemedi: " + eventName, e);
         }
+        eventBus.publish(new SseBusMessage(IdGenerator.newMonotonicId(), parentId, eventName, coalesceKey, json));
+    }
+
+    /**
+     * Bus'tan (yerel ya da başka düğümden) gelen olayı tekrar tamponuna yazar ve bu
+     * düğümdeki bağlantılara verir. Ebeveynin burada bağlantısı olmasa da tampona
+     * yazılır: yeniden bağlantı bu düğüme düşebilir.
+     */
+    private void dispatch(SseBusMessage message) {
+        if (message.isInternal()) return;
+
+        SseReplayBuffer.Ring ring = replay.ring(message.parentId());
+        synchronized (ring) {
+            ring.append(message);
+
+            List<SseConnection> list = connections.get(message.parentId());
+            if (list == null) return;
+
+            SseConnection.Outbound event = SseConnection.Outbound.of(message);
+            for (SseConnection connection : list) {
+                deliver(connection, event);
+            }
+        }
+    }
+
+    private void deliver(SseConnection connection, SseConnection.Outbound event) {
+        if (properties.getFanOut() == SseProperties.FanOut.SYNC) {
+            try {
+                connection.getEmitter().send(event.toEvent());
+            } catch (Throwable t) {
+                // Client bağlantısı kopmuş — sadece listeden çıkar.
+                // complete() ÇAĞIRMA: Tomcat'in async error dispatch döngüsünü tetikler.
+                if (!connection.isClosed()) reapedWriteFailed.increment();
+                removeConnection(connection);
+            }
+            return;
+        }
+        offers.get(connection.enqueue(event)).increment();
+    }
 
-        if (list.isEmpty()) emitters.remove(parentId);
+    private Stream<SseConnection> all() {
+        return connections.values().stream().flatMap(List::stream);
     }
 
-    /** Konum güncellemesi için kısayol */
-    public void send(String parentId, Object data) {
-        sendEvent(parentId, "location-update", data);
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        writers.shutdownNow();
     }
 }
@@ -0,0 +1,27 @@
+package com.safekid.child.sse;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link SseEmitterRegistry} ile ebeveyn bağlantılarının bulunduğu düğümler arasındaki
+ * yayın katmanı. Bir düğümde yayınlanan olay, o ebeveynin bağlı olduğu her düğümdeki
+ * abonelere (yerel registry) ulaşır.
+ *
+ * <p>{@code safekid.sse.bus} ile seçilir: {@code in-process} (tek düğüm, varsayılan)
+ * ya da {@code postgres} (LISTEN/NOTIFY).
+ */
+public interface SseEventBus {
+
+    /** Olayı tüm düğümlere iletir; çağıranı ağ I/O'su için bekletmez. */
+    void publish(SseBusMessage message);
+
+    /** Bu düğüme ulaşan her olay için çağrılır. */
+    void subscribe(Consumer<SseBusMessage> listener);
+
+    /**
+     * Bu düğüme ulaşması gereken olaylar kaçırılmış olabileceğinde (ör. dinleme
+     * bağlantısı koptu ve yeniden kuruldu) çağrılır. Tek düğümlü bus'ta hiç çağrılmaz.
+     */
+    default void onGap(Runnable listener) {
+    }
+}
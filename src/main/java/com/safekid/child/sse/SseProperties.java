@@ -0,0 +1,146 @@
+package com.safekid.child.sse;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Canlı konum (SSE) yayın yapılandırması.
+ *
+ * <pre>
+ * safekid.sse.fan-out=ASYNC              # SYNC: eski davranış, çağıran thread yazar
+ * safekid.sse.queue-capacity=64
+ * safekid.sse.overflow-policy=COALESCE   # DROP_OLDEST | DROP_NEWEST | COALESCE
+ * safekid.sse.min-send-interval=1s       # aynı çocuğun konumu için en sık gönderim
+ * safekid.sse.bus=in-process             # in-process | postgres (çok düğüm)
+ * safekid.sse.postgres.channel=safekid_sse
+ * safekid.sse.replay.capacity=128        # Last-Event-ID ile tekrar için ebeveyn başına olay
+ * safekid.sse.heartbeat.interval=25s
+ * safekid.sse.heartbeat.buckets=25       # bağlantılar bu kadar dilime yayılır
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "safekid.sse")
+@Getter
+@Setter
+public class SseProperties {
+
+    /**
+     * {@code ASYNC}: her bağlantının sınırlı bir kuyruğu vardır, yazma ayrı bir
+     * sanal thread'de yapılır; yavaş bir ebeveyn bağlantısı konum POST'unu bekletmez.
+     * {@code SYNC}: olay çağıranın thread'inde doğrudan yazılır.
+     */
+    private FanOut fanOut = FanOut.ASYNC;
+
+    /** Bağlantı başına bekleyen en fazla olay sayısı. */
+    private int queueCapacity = 64;
+
+    /** Kuyruk dolduğunda (istemci geride kaldığında) uygulanacak politika. */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE;
+
+    /**
+     * Aynı birleştirme anahtarı (ebeveyn bağlantısı + çocuk) için iki gönderim arasındaki
+     * en kısa süre. Arada gelen konumlar bekleyen değeri günceller; alarmlar etkilenmez.
+     * {@code 0} ise sınır yok.
+     */
+    private Duration minSendInterval = Duration.ofSeconds(1);
+
+    /**
+     * Olay yayın katmanı. Birden fazla düğüm çalışıyorsa {@code postgres} seçilmeli;
+     * aksi halde bir düğüme gelen konum diğer düğüme bağlı ebeveyne ulaşmaz.
+     */
+    private Bus bus = Bus.IN_PROCESS;
+
+    private Postgres postgres = new Postgres();
+
+    private Replay replay = new Replay();
+
+    private Heartbeat heartbeat = new Heartbeat();
+
+    public enum Bus {
+        IN_PROCESS, POSTGRES
+    }
+
+    public enum FanOut {
+        SYNC, ASYNC
+    }
+
+    /**
+     * Yalnızca birleştirme anahtarı olan olaylara uygulanır. Anahtarsız olaylar
+     * (geofence ihlali, AI alarmı) hiçbir politikada atılmaz ya da birleştirilmez.
+     */
+    public enum OverflowPolicy {
+        /** En eski bekleyen anahtarlı olayı at, yenisini ekle. */
+        DROP_OLDEST,
+        /** Yeni olayı at. */
+        DROP_NEWEST,
+        /**
+         * Aynı birleştirme anahtarına sahip (ör. aynı çocuğun konumu) bekleyen olayı
+         * her zaman yenisiyle değiştir (son değer kazanır); kuyruk doluysa en eskiyi at.
+         */
+        COALESCE
+    }
+
+    @Getter
+    @Setter
+    public static class Postgres {
+
+        /** LISTEN/NOTIFY kanal adı (küçük harf, rakam, alt çizgi). */
+        private String channel = "safekid_sse";
+
+        /**
+         * Diğer düğümlere gönderilmeyi bekleyen en fazla birleştirilebilir olay (konum).
+         * Alarmlar ve iç bildirimler ayrı, sınırsız bir kuyruktan gider.
+         */
+        private int queueCapacity = 10_000;
+
+        /** Tek yayın turunda kuyruktan alınan en fazla olay. */
+        private int batchSize = 200;
+
+        /** NOTIFY yük sınırı (PostgreSQL varsayılanı 8000 bayt); aşan olay parçalanır. */
+        private int maxPayloadBytes = 7900;
+
+        /** Dinleyici bağlantısı koptuğunda / NOTIFY başarısız olduğunda bekleme. */
+        private Duration reconnectDelay = Duration.ofSeconds(2);
+
+        /**
+         * Başarısız alarm yayını yeniden denenirken bekleme her denemede ikiye katlanır;
+         * bu süreyi aşmaz.
+         */
+        private Duration maxRetryDelay = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Replay {
+
+        /** Ebeveyn başına tutulan son olay sayısı. */
+        private int capacity = 128;
+
+        /** Bundan eski olaylar tekrar oynatılmaz; istemciye yeniden senkron bildirilir. */
+        private Duration maxAge = Duration.ofMinutes(10);
+
+        /** Tampon tutulan en fazla ebeveyn sayısı (en az kullanılan düşer). */
+        private int maxParents = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Heartbeat {
+
+        /** Bir bağlantı en fazla bu kadar sessiz kalır; bu sürede olay yazıldıysa heartbeat atlanır. */
+        private Duration interval = Duration.ofSeconds(25);
+
+        /**
+         * Bağlantılar bu kadar zaman dilimine dağıtılır; her tikte ({@code interval / buckets})
+         * yalnızca bir dilim işlenir, böylece iş zamana yayılır.
+         */
+        private int buckets = 25;
+
+        /** Tek bir yazma bu süreden uzun bloklu kalırsa bağlantı ölü sayılıp kaldırılır. */
+        private Duration stallTimeout = Duration.ofSeconds(60);
+    }
+}
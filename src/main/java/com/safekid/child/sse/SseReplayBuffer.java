@@ -0,0 +1,189 @@
+package com.safekid.child.sse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ebeveyn başına son olayların halka tamponu; {@code Last-Event-ID} ile yeniden
+ * bağlanan istemciye kaçırdığı olayları tekrar oynatmak için.
+ *
+ * <p>Olay id'leri ULID'dir, yani sözlük sırası zaman sırasıdır. Tampon, istemcinin
+ * bildirdiği id'den sonraki olayların hepsini hâlâ tutuyorsa tam tekrar yapılır;
+ * aradaki bir olay kapasite/yaş nedeniyle düşmüşse ya da bu düğüm o sırada bu ebeveyni
+ * izlemiyorsa (yeniden başlatma, LRU tahliyesi, bus dinleme kopması) boşluk bildirilir.
+ *
+ * <p>Düğümdeki tüm olaylar (başka düğümden gelenler dahil) tampona yazılır; yeniden
+ * bağlantı hangi düğüme düşerse düşsün tekrar oynatılabilir. Tampon varış sırasındadır,
+ * id sırasında değil: farklı düğümlerin yayınları NOTIFY gecikmesiyle karışık gelir.
+ * Bu yüzden tekrar oynatmada halkanın tamamı taranır ve id'ye göre süzülür. Düğüm
+ * saatleri kayabildiği için id sırası düğümler arasında zaman sırası sayılmaz: halkadaki
+ * en yeni id'den küçük id'yle geç gelen olay, o aralıkta {@code Last-Event-ID} bildiren
+ * istemci için boşluk sayılır (id süzgeci o olayı atlardı).
+ *
+ * <p>Anahtarlı olaylarda (konum) halkada anahtar başına yalnızca son gelen tutulur;
+ * yeni gelen eskisinin yerine geçip sona taşınır. Böylece konum patlamaları kapasiteyi
+ * doldurup alarmları halkadan itemez: kapasite anahtar başına son değer ve alarmlar
+ * arasında paylaşılır.
+ */
+class SseReplayBuffer {
+
+    private final int capacity;
+    private final long maxAgeMillis;
+    private final Map<String, Ring> rings;
+    /** Yeni açılan halkaların kapsama başlangıcı; bus kopmasında ileri alınır. */
+    private volatile String startedAtId;
+    private volatile boolean evictedAny;
+
+    SseReplayBuffer(SseProperties.Replay properties) {
+        this.capacity = properties.getCapacity();
+        this.maxAgeMillis = properties.getMaxAge().toMillis();
+        int maxParents = properties.getMaxParents();
+        this.rings = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+                if (size() <= maxParents) return false;
+                evictedAny = true;
+                return true;
+            }
+        });
+        this.startedAtId = idPrefixAt(System.currentTimeMillis());
+    }
+
+    /**
+     * Ebeveynin halkası. Olay ekleme ile bağlantıya dağıtım ve yeni bağlantının tekrar
+     * oynatması bu nesne üzerinde senkronize edilir; böylece bir olay ne kaçar ne de
+     * iki kez yazılır.
+     */
+    Ring ring(String parentId) {
+        return rings.computeIfAbsent(parentId, k -> new Ring(evictedAny
+                ? idPrefixAt(System.currentTimeMillis())
+                : startedAtId));
+    }
+
+    /**
+     * Bu andan önceki olayların bazıları düğüme hiç ulaşmamış olabilir (bus dinleme
+     * bağlantısı koptu): tüm halkaların kapsaması şimdiden başlatılır, daha eski
+     * {@code Last-Event-ID} ile gelen istemci resync alır.
+     */
+    void markGap() {
+        String now = idPrefixAt(System.currentTimeMillis());
+        startedAtId = now;
+        List<Ring> all;
+        synchronized (rings) {
+            all = new ArrayList<>(rings.values());
+        }
+        for (Ring ring : all) {
+            synchronized (ring) {
+                ring.coverFrom(now);
+            }
+        }
+    }
+
+    /**
+     * @param events tekrar oynatılacak olaylar (anahtarlı olaylarda anahtar başına yalnızca sonuncusu)
+     * @param gap    {@code true} ise istemci bazı olayları kaçırmış olabilir; tam durumu yeniden çekmeli
+     */
+    record Replay(List<SseBusMessage> events, boolean gap) {}
+
+    final class Ring {
+
+        /** Varış sırasında; anahtar: birleştirme anahtarı ya da (anahtarsız olayda) id. */
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        /** Bu düğümün bu ebeveyn için kesintisiz olay görmeye başladığı an (ULID zaman öneki). */
+        private String coveredFrom;
+        /**
+         * Bundan küçük {@code Last-Event-ID} ile gelen istemci düşen bir olayı kaçırmış
+         * olabilir: düşen olayların id'si, geç gelmişlerse varışlarındaki en yeni id.
+         */
+        private String maxDroppedId;
+        /** Halkaya şimdiye kadar eklenen en büyük id. */
+        private String maxId;
+
+        private Ring(String coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+
+        private void coverFrom(String idPrefix) {
+            if (idPrefix.compareTo(coveredFrom) > 0) coveredFrom = idPrefix;
+        }
+
+        void append(SseBusMessage message) {
+            long now = System.currentTimeMillis();
+            trim(now);
+            String key = message.coalesceKey() != null
+                    ? "k:" + message.coalesceKey()
+                    : "i:" + message.id();
+            // Aynı anahtarın önceki değeri düşmüş sayılmaz: yerine geçen olay tekrar oynatılır
+            if (entries.remove(key) == null && entries.size() >= capacity) drop();
+
+            // Geç gelen (id'si halkadaki en yeniden küçük) olay: [id, lateBelow) aralığında
+            // Last-Event-ID bildiren istemci onu görmemiş olabilir
+            String lateBelow = null;
+            if (maxId == null || message.id().compareTo(maxId) > 0) {
+                maxId = message.id();
+            } else {
+                lateBelow = maxId;
+            }
+            entries.put(key, new Entry(message, now, lateBelow));
+        }
+
+        Replay since(String lastEventId) {
+            trim(System.currentTimeMillis());
+            if (!isUlid(lastEventId)) {
+                return new Replay(List.of(), true);
+            }
+            boolean gap = lastEventId.compareTo(coveredFrom) < 0
+                    || (maxDroppedId != null && lastEventId.compareTo(maxDroppedId) < 0);
+
+            // Tüm halka, varış sırasıyla; anahtar başına zaten yalnızca son gelen durur
+            List<SseBusMessage> missed = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                SseBusMessage m = entry.message();
+                if (m.id().compareTo(lastEventId) > 0) {
+                    missed.add(m);
+                } else if (entry.lateBelow() != null && lastEventId.compareTo(entry.lateBelow()) < 0) {
+                    gap = true;
+                }
+            }
+            return new Replay(missed, gap);
+        }
+
+        private void trim(long now) {
+            while (!entries.isEmpty() && now - entries.firstEntry().getValue().receivedAt() > maxAgeMillis) {
+                drop();
+            }
+        }
+
+        private void drop() {
+            Entry entry = entries.pollFirstEntry().getValue();
+            String bound = entry.lateBelow() != null ? entry.lateBelow() : entry.message().id();
+            if (maxDroppedId == null || bound.compareTo(maxDroppedId) > 0) maxDroppedId = bound;
+        }
+    }
+
+    /** @param lateBelow geç geldiyse varışındaki en yeni id, değilse {@code null} */
+    private record Entry(SseBusMessage message, long receivedAt, String lateBelow) {}
+
+    private static final String CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    /** Verilen zamana ait ULID'lerin 10 karakterlik zaman öneki. */
+    static String idPrefixAt(long epochMillis) {
+        char[] out = new char[10];
+        for (int i = 9; i >= 0; i--) {
+            out[i] = CROCKFORD.charAt((int) (epochMillis & 31));
+            epochMillis >>>= 5;
+        }
+        return new String(out);
+    }
+
+    private static boolean isUlid(String id) {
+        if (id == null || id.length() != 26) return false;
+        for (int i = 0; i < id.length(); i++) {
+            if (CROCKFORD.indexOf(id.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+}
@@ -40,6 +40,10 @@ public class SecurityConfig {
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
 
+                        // Actuator: yalnızca health herkese açık; metrikler CHILD/PARENT token'larına kapalı
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         .requestMatchers("/child/location", "/child/location/**").hasRole("CHILD")
                         .requestMatchers("/parent/**").hasRole("PARENT")
 
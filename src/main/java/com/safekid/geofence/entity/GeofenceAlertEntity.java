@@ -14,7 +14,8 @@ import java.time.Instant;
 public class GeofenceAlertEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alan_ihlal_bildirimi_seq")
+    @SequenceGenerator(name = "alan_ihlal_bildirimi_seq", sequenceName = "alan_ihlal_bildirimi_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
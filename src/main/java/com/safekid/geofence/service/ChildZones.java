@@ -0,0 +1,42 @@
+package com.safekid.geofence.service;
+
+import com.safekid.geofence.util.CompiledPolygon;
+import com.safekid.geofence.util.PolygonGridIndex;
+
+/**
+ * Bir çocuğun derlenmiş güvenli alanları ve bunlar üzerindeki ızgara indeksi.
+ */
+final class ChildZones {
+
+    static final ChildZones EMPTY = new ChildZones(new CompiledZone[0]);
+
+    private final CompiledZone[] zones;
+    private final PolygonGridIndex index;
+
+    ChildZones(CompiledZone[] zones) {
+        this.zones = zones;
+        CompiledPolygon[] polygons = new CompiledPolygon[zones.length];
+        for (int i = 0; i < zones.length; i++) {
+            polygons[i] = zones[i].polygon();
+        }
+        this.index = PolygonGridIndex.build(polygons);
+    }
+
+    boolean isEmpty() {
+        return zones.length == 0;
+    }
+
+    CompiledZone[] zones() {
+        return zones;
+    }
+
+    /** Noktanın ızgara hücresindeki aday alan indeksleri; değiştirilmemelidir. */
+    int[] candidatesAt(double lat, double lng) {
+        return index.candidatesAt(lat, lng);
+    }
+
+    /** {@link #candidatesAt} ile alınmış adaylardan biri noktayı içeriyor mu. */
+    boolean insideAny(int[] candidates, double lat, double lng) {
+        return index.findContaining(candidates, lat, lng) >= 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.safekid.geofence.service;
+
+import com.safekid.geofence.util.CompiledPolygon;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bir güvenli alanın konum kontrolüne hazır, derlenmiş hali.
+ *
+ * <p>GeoJSON dış halkası bir kez ayrıştırılıp {@link CompiledPolygon}'a
+ * çevrilir; böylece her konumda JSON ayrıştırma ve boxing yapılmaz.
+ */
+final class CompiledZone {
+
+    private final Long id;
+    private final String alanAdi;
+    private final CompiledPolygon polygon;
+
+    /** Son ihlal bildirimi (epoch ms), 0 → hiç gönderilmedi. */
+    private final AtomicLong lastAlertAtMillis;
+
+    CompiledZone(Long id, String alanAdi, CompiledPolygon polygon, long lastAlertAtMillis) {
+        this.id = id;
+        this.alanAdi = alanAdi;
+        this.polygon = polygon;
+        this.lastAlertAtMillis = new AtomicLong(lastAlertAtMillis);
+    }
+
+    Long id() {
+        return id;
+    }
+
+    String alanAdi() {
+        return alanAdi;
+    }
+
+    CompiledPolygon polygon() {
+        return polygon;
+    }
+
+    /**
+     * Cooldown dolmuşsa bildirim hakkını atomik olarak alır.
+     * Aynı alan için eşzamanlı iki konum aynı anda bildirim üretemez.
+     */
+    boolean tryAcquireAlert(long nowMillis, long cooldownMillis) {
+        long last = lastAlertAtMillis.get();
+        if (last != 0 && nowMillis - last < cooldownMillis) return false;
+        return lastAlertAtMillis.compareAndSet(last, nowMillis);
+    }
+}
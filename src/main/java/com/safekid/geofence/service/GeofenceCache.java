@@ -0,0 +1,189 @@
+package com.safekid.geofence.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safekid.child.sse.SseBusMessage;
+import com.safekid.child.sse.SseEventBus;
+import com.safekid.geofence.entity.GeofenceEntity;
+import com.safekid.geofence.repository.GeofenceRepository;
+import com.safekid.geofence.util.CompiledPolygon;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Çocuk başına derlenmiş güvenli alan önbelleği.
+ *
+ * <p>İlk konumda çocuğun aktif alanları DB'den okunup {@link CompiledZone}'a
+ * çevrilir; sonraki konumlar DB'ye gitmeden ve JSON ayrıştırmadan kontrol edilir.
+ * Alan oluşturma / güncelleme / silme işlemleri commit sonrası önbelleği temizler ve
+ * {@link SseEventBus} üzerinden diğer düğümlere de temizletir. Bildirimin kaçtığı
+ * durumlar (ör. LISTEN bağlantısı koparken) için girdiler {@code ttl} sonunda yeniden yüklenir.
+ *
+ * <p>Yükleme harita kilidi dışında yapılır: haritada yalnızca bir future tutulur, aynı
+ * çocuk için eşzamanlı istekler aynı yüklemeyi bekler ve farklı çocukların yüklemeleri
+ * birbirini (aynı hash kovasında olsalar bile) bekletmez.
+ *
+ * <p>Derlenen alanlar üzerine bir {@link com.safekid.geofence.util.PolygonGridIndex}
+ * kurulur; kurulum süresi {@code safekid.geofence.index.build} metriğine yazılır.
+ */
+@Slf4j
+@Component
+class GeofenceCache {
+
+    static final String EVICT_EVENT = "geofence-evict";
+
+    private final GeofenceRepository geofenceRepo;
+    private final ObjectMapper objectMapper;
+    private final SseEventBus eventBus;
+    private final Timer indexBuildTimer;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<String, Entry> zonesByChild = new ConcurrentHashMap<>();
+
+    /** @param loadedAt yükleme başlangıcı (nanoTime) */
+    private record Entry(CompletableFuture<ChildZones> zones, long loadedAt) {
+
+        boolean isExpired(long now, long ttlNanos) {
+            return now - loadedAt >= ttlNanos;
+        }
+    }
+
+    GeofenceCache(GeofenceRepository geofenceRepo,
+                  ObjectMapper objectMapper,
+                  SseEventBus eventBus,
+                  MeterRegistry meterRegistry,
+                  @Value("${safekid.geofence.cache.ttl:5m}") Duration ttl) {
+        this.geofenceRepo = geofenceRepo;
+        this.objectMapper = objectMapper;
+        this.eventBus = eventBus;
+        this.ttlNanos = ttl.toNanos();
+        this.indexBuildTimer = Timer.builder("safekid.geofence.index.build")
+                .description("Çocuk başına alan derleme + ızgara indeksi kurulum süresi")
+                .register(meterRegistry);
+        Gauge.builder("safekid.geofence.cache.children", zonesByChild, ConcurrentHashMap::size)
+                .description("Önbellekte alanları tutulan çocuk sayısı")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        eventBus.subscribe(message -> {
+            if (message.isInternal() && EVICT_EVENT.equals(message.event())) {
+                try {
+                    zonesByChild.remove(objectMapper.readValue(message.json(), String.class));
+                } catch (Exception e) {
+                    log.warn("Invalid geofence evict message: {}", message.json());
+                }
+            }
+        });
+    }
+
+    ChildZones zonesFor(String childId) {
+        long now = System.nanoTime();
+        Entry entry = zonesByChild.get(childId);
+        if (entry != null && entry.isExpired(now, ttlNanos)) {
+            zonesByChild.remove(childId, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            Entry created = new Entry(new CompletableFuture<>(), now);
+            entry = zonesByChild.putIfAbsent(childId, created);
+            if (entry == null) {
+                // Yükleme sırasında gelen evict girdiyi haritadan çıkarır; sonuç
+                // yalnızca bekleyen çağıranlara döner, önbelleğe kalmaz
+                try {
+                    ChildZones zones = load(childId);
+                    created.zones().complete(zones);
+                    return zones;
+                } catch (RuntimeException e) {
+                    zonesByChild.remove(childId, created);
+                    created.zones().completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            return entry.zones().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Aktif transaction varsa commit sonrası, yoksa hemen önbelleği temizler ve diğer
+     * düğümlere bildirir. Commit öncesi temizlemek, eski verinin tekrar yüklenmesine yol açardı.
+     */
+    void evictAfterCommit(String childId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(childId);
+                }
+            });
+        } else {
+            evict(childId);
+        }
+    }
+
+    private void evict(String childId) {
+        zonesByChild.remove(childId);
+        try {
+            eventBus.publish(SseBusMessage.internal(EVICT_EVENT, objectMapper.writeValueAsString(childId)));
+        } catch (Exception e) {
+            // Diğer düğümler TTL ile tazeler; commit sonrası kullanıcıya hata dönmesin
+            log.warn("Geofence evict for child {} not propagated to other nodes", childId, e);
+        }
+    }
+
+    private ChildZones load(String childId) {
+        List<GeofenceEntity> entities = geofenceRepo.findByChild_CocukUniqueIdAndAktifTrue(childId);
+        if (entities.isEmpty()) return ChildZones.EMPTY;
+
+        return indexBuildTimer.record(() -> {
+            CompiledZone[] zones = new CompiledZone[entities.size()];
+            for (int i = 0; i < zones.length; i++) {
+                zones[i] = compile(entities.get(i));
+            }
+            return new ChildZones(zones);
+        });
+    }
+
+    private CompiledZone compile(GeofenceEntity entity) {
+        JsonNode ring;
+        try {
+            ring = objectMapper.readTree(entity.getGeoJson()).path("coordinates").path(0);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        int n = ring.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            JsonNode point = ring.get(i);
+            xs[i] = point.get(0).asDouble();
+            ys[i] = point.get(1).asDouble();
+        }
+
+        long lastAlert = entity.getSonBildirimZamani() != null
+                ? entity.getSonBildirimZamani().toEpochMilli()
+                : 0L;
+
+        return new CompiledZone(entity.getId(), entity.getAlanAdi(), new CompiledPolygon(xs, ys), lastAlert);
+    }
+}
@@ -7,17 +7,18 @@ import com.safekid.geofence.dto.*;
 import com.safekid.notification.FcmService;
 import com.safekid.geofence.entity.*;
 import com.safekid.geofence.repository.*;
-import com.safekid.geofence.util.PointInPolygon;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.repository.ChildRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
@@ -30,6 +31,9 @@ public class GeofenceService {
     private final SseEmitterRegistry sseRegistry;
     private final ObjectMapper objectMapper;
     private final FcmService fcmService;
+    private final GeofenceCache geofenceCache;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary candidateSummary;
 
     @Value("${safekid.geofence.alert-cooldown-minutes:30}")
     private int alertCooldownMinutes;
@@ -39,13 +43,21 @@ public class GeofenceService {
                            ChildRepository childRepo,
                            SseEmitterRegistry sseRegistry,
                            ObjectMapper objectMapper,
-                           FcmService fcmService) {
+                           FcmService fcmService,
+                           GeofenceCache geofenceCache,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
         this.geofenceRepo = geofenceRepo;
         this.alertRepo    = alertRepo;
         this.childRepo    = childRepo;
         this.sseRegistry  = sseRegistry;
         this.objectMapper = objectMapper;
         this.fcmService   = fcmService;
+        this.geofenceCache = geofenceCache;
+        this.transactionTemplate = transactionTemplate;
+        this.candidateSummary = DistributionSummary.builder("safekid.geofence.index.candidates")
+                .description("Konum başına polygon testine giren aday alan sayısı")
+                .register(meterRegistry);
     }
 
     // ───────────── CRUD (🔥 SİLİNENLERİ GERİ EKLEDİM) ─────────────
@@ -67,6 +79,7 @@ public class GeofenceService {
         entity.setAktif(true);
 
         geofenceRepo.save(entity);
+        geofenceCache.evictAfterCommit(child.getCocukUniqueId());
         return toResponse(entity);
     }
 
@@ -87,6 +100,7 @@ public class GeofenceService {
 
         entity.setAktif(false);
         geofenceRepo.save(entity);
+        geofenceCache.evictAfterCommit(entity.getChild().getCocukUniqueId());
     }
 
     @Transactional
@@ -101,49 +115,68 @@ public class GeofenceService {
         entity.setGeoJson(buildGeoJson(req.koordinatlar()));
 
         geofenceRepo.save(entity);
+        geofenceCache.evictAfterCommit(entity.getChild().getCocukUniqueId());
         return toResponse(entity);
     }
 
     // ───────────── 🔥 ANY SAFE ZONE LOGIC ─────────────
 
+    /**
+     * Alanlar {@link GeofenceCache}'ten okunur; çocuk bir alanın içindeyse
+     * DB'ye hiç gidilmez. Sadece ihlal bildirimi yazılırken transaction açılır.
+     */
     @Async
-    @Transactional
     public void checkAndAlert(String childId, String parentId, String childName,
                               String fcmToken, double lat, double lng) {
 
-        List<GeofenceEntity> zones =
-                geofenceRepo.findByChild_CocukUniqueIdAndAktifTrue(childId);
+        ChildZones zones = geofenceCache.zonesFor(childId);
 
         if (zones.isEmpty()) return;
 
-        boolean insideAnyZone = false;
+        evaluate(zones, childId, parentId, childName, fcmToken, lat, lng);
+    }
+
+    /**
+     * Toplu konum gönderiminde tüm noktaları sırasıyla kontrol eder.
+     * Cooldown noktalar arasında da geçerlidir.
+     */
+    @Async
+    public void checkAndAlertAll(String childId, String parentId, String childName,
+                                 String fcmToken, double[] lats, double[] lngs) {
 
-        for (GeofenceEntity zone : zones) {
-            List<List<Double>> outerRing = parseOuterRing(zone.getGeoJson());
+        ChildZones zones = geofenceCache.zonesFor(childId);
 
-            if (PointInPolygon.isInside(lat, lng, outerRing)) {
-                insideAnyZone = true;
-                break;
-            }
+        if (zones.isEmpty()) return;
+
+        for (int i = 0; i < lats.length; i++) {
+            evaluate(zones, childId, parentId, childName, fcmToken, lats[i], lngs[i]);
         }
+    }
 
-        if (insideAnyZone) return;
+    private void evaluate(ChildZones zones, String childId, String parentId,
+                          String childName, String fcmToken, double lat, double lng) {
 
-        for (GeofenceEntity zone : zones) {
+        // Izgara indeksi: yalnızca noktanın hücresindeki aday alanlar test edilir.
+        // Hücre bir kez aranır; aynı adaylar hem metrikte hem içerme testinde kullanılır.
+        int[] candidates = zones.candidatesAt(lat, lng);
+        candidateSummary.record(candidates.length);
+        if (zones.insideAny(candidates, lat, lng)) return;
 
-            if (isCooldownExpired(zone)) {
+        long nowMillis = System.currentTimeMillis();
+        long cooldownMillis = alertCooldownMinutes * 60_000L;
 
-                Instant now = Instant.now();
+        for (CompiledZone zone : zones.zones()) {
 
-                zone.setSonBildirimZamani(now);
-                geofenceRepo.save(zone);
+            if (zone.tryAcquireAlert(nowMillis, cooldownMillis)) {
+
+                Instant now = Instant.ofEpochMilli(nowMillis);
 
                 sseRegistry.sendEvent(parentId, "geofence-breach",
                         new GeofenceAlertEvent(
                                 "GEOFENCE_BREACH",
                                 childId, childName,
                                 lat, lng,
-                                zone.getId(), zone.getAlanAdi(),
+                                zone.id(), zone.alanAdi(),
                                 now
                         )
                 );
@@ -154,23 +187,34 @@ public class GeofenceService {
                         "Tüm güvenli alanların dışına çıktı."
                 );
 
-                ChildEntity childRef = childRepo.getReferenceById(childId);
-
-                GeofenceAlertEntity record = new GeofenceAlertEntity();
-                record.setChild(childRef);
-                record.setGeofence(zone);
-                record.setAlanAdi(zone.getAlanAdi());
-                record.setLat(lat);
-                record.setLng(lng);
-                record.setZaman(now);
-
-                alertRepo.save(record);
+                transactionTemplate.executeWithoutResult(status ->
+                        saveAlert(zone, childId, lat, lng, now));
 
                 break;
             }
         }
     }
 
+    private void saveAlert(CompiledZone zone, String childId, double lat, double lng, Instant now) {
+
+        GeofenceEntity geofence = geofenceRepo.findById(zone.id())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        geofence.setSonBildirimZamani(now);
+        geofenceRepo.save(geofence);
+
+        ChildEntity childRef = childRepo.getReferenceById(childId);
+
+        GeofenceAlertEntity record = new GeofenceAlertEntity();
+        record.setChild(childRef);
+        record.setGeofence(geofence);
+        record.setAlanAdi(zone.alanAdi());
+        record.setLat(lat);
+        record.setLng(lng);
+        record.setZaman(now);
+
+        alertRepo.save(record);
+    }
+
     // ───────────── HELPERS ─────────────
 
     private String buildGeoJson(List<List<Double>> coords) {
@@ -220,12 +264,6 @@ public class GeofenceService {
         return child;
     }
 
-    private boolean isCooldownExpired(GeofenceEntity zone) {
-        Instant last = zone.getSonBildirimZamani();
-        if (last == null) return true;
-        return Duration.between(last, Instant.now()).toMinutes() >= alertCooldownMinutes;
-    }
-
     private GeofenceResponse toResponse(GeofenceEntity e){
         return new GeofenceResponse(
                 e.getId(),
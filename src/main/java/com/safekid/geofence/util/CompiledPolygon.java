@@ -0,0 +1,146 @@
+package com.safekid.geofence.util;
+
+import java.util.List;
+
+/**
+ * Konum kontrolü için önceden derlenmiş polygon.
+ *
+ * <p>Koordinatlar primitive dizilerde tutulur (xs = longitude, ys = latitude,
+ * GeoJSON sırası) ve sınır kutusu bir kez hesaplanır. {@link #contains} önce
+ * sınır kutusuyla eler, sonra kenar kontrolünü ve ray casting'i tek döngüde yapar.
+ */
+public final class CompiledPolygon {
+
+    /** Kenar üstü kontrolünde kullanılan tolerans (derece²). */
+    static final double EPS = 1e-6;
+
+    /**
+     * EPS toleransıyla "kenar üstünde" sayılan bölge, polygon sınır kutusunun
+     * en fazla ~sqrt(EPS) derece dışına taşabilir. Sınır kutusu ön-elemesi bu
+     * payla genişletilirse sonuç değişmez (~200 m).
+     */
+    static final double EDGE_MARGIN = 2 * Math.sqrt(EPS);
+
+    private final double[] xs;
+    private final double[] ys;
+
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+
+    /**
+     * Diziler kopyalanmaz; çağıran taraf sonradan değiştirmemelidir.
+     *
+     * @param xs dış halka longitude değerleri
+     * @param ys dış halka latitude değerleri
+     */
+    public CompiledPolygon(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("xs ve ys aynı uzunlukta olmalı");
+        }
+        this.xs = xs;
+        this.ys = ys;
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        this.minX = minX - EDGE_MARGIN;
+        this.maxX = maxX + EDGE_MARGIN;
+        this.minY = minY - EDGE_MARGIN;
+        this.maxY = maxY + EDGE_MARGIN;
+    }
+
+    /** GeoJSON dış halkasından [[lng, lat], ...] derler. */
+    public static CompiledPolygon fromRing(List<List<Double>> coordinates) {
+        int n = coordinates.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            List<Double> point = coordinates.get(i);
+            xs[i] = point.get(0);
+            ys[i] = point.get(1);
+        }
+        return new CompiledPolygon(xs, ys);
+    }
+
+    /**
+     * @return true → içeride veya sınır üzerinde
+     */
+    public boolean contains(double lat, double lng) {
+        if (lng < minX || lng > maxX || lat < minY || lat > maxY) return false;
+        return ringContains(lat, lng, xs, ys);
+    }
+
+    public int vertexCount() {
+        return xs.length;
+    }
+
+    /** Kenar toleransı dahil sınır kutusu. */
+    public double minLng() { return minX; }
+    public double maxLng() { return maxX; }
+    public double minLat() { return minY; }
+    public double maxLat() { return maxY; }
+
+    /**
+     * Kenar kontrolü + ray casting tek geçişte.
+     * Kenar kontrolü halkayı kapatan (son → ilk) kenarı kapsamaz; eski
+     * iki geçişli algoritmayla aynı sonucu verir.
+     */
+    static boolean ringContains(double lat, double lng, double[] xs, double[] ys) {
+
+        int n = xs.length;
+        if (n < 3) return false;
+
+        boolean inside = false;
+        double xj = xs[n - 1];
+        double yj = ys[n - 1];
+
+        for (int i = 0; i < n; i++) {
+
+            double xi = xs[i];
+            double yi = ys[i];
+
+            // 🔥 EDGE CHECK — sınırdaysa içeride kabul et
+            if (i > 0 && pointOnSegment(lng, lat, xj, yj, xi, yi)) {
+                return true;
+            }
+
+            if ((yi > lat) != (yj > lat)) {
+                double intersectLng = (xj - xi) * (lat - yi) / (yj - yi) + xi;
+
+                if (lng <= intersectLng) {
+                    inside = !inside;
+                }
+            }
+
+            xj = xi;
+            yj = yi;
+        }
+
+        return inside;
+    }
+
+    private static boolean pointOnSegment(
+            double px, double py,
+            double x1, double y1,
+            double x2, double y2) {
+
+        double cross =
+                (px - x1) * (y2 - y1) -
+                        (py - y1) * (x2 - x1);
+
+        if (Math.abs(cross) > EPS) return false;
+
+        double dot =
+                (px - x1) * (px - x2) +
+                        (py - y1) * (py - y2);
+
+        return dot <= EPS;
+    }
+}
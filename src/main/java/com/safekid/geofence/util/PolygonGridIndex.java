@@ -0,0 +1,123 @@
+package com.safekid.geofence.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Polygon sınır kutuları üzerinde düzgün ızgara (uniform grid) indeksi.
+ *
+ * <p>Çok sayıda güvenli alanı olan çocuklarda her konumda tüm polygonları
+ * denemek yerine, yalnızca noktanın düştüğü hücreyle kesişen polygonlar
+ * (adaylar) test edilir. Sorgular nesne üretmez.
+ */
+public final class PolygonGridIndex {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int MAX_SIDE = 64;
+
+    private final CompiledPolygon[] polygons;
+
+    private final double minLng;
+    private final double minLat;
+    private final double maxLng;
+    private final double maxLat;
+    private final double cellW;
+    private final double cellH;
+    private final int cols;
+    private final int rows;
+
+    /** Satır-öncelikli hücreler; her hücre kesişen polygonların indekslerini tutar. */
+    private final int[][] cells;
+
+    private PolygonGridIndex(CompiledPolygon[] polygons) {
+        this.polygons = polygons;
+
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (CompiledPolygon p : polygons) {
+            minLng = Math.min(minLng, p.minLng());
+            maxLng = Math.max(maxLng, p.maxLng());
+            minLat = Math.min(minLat, p.minLat());
+            maxLat = Math.max(maxLat, p.maxLat());
+        }
+        this.minLng = minLng;
+        this.maxLng = maxLng;
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+
+        // ~2 hücre / alan / eksen: tipik olarak her hücrede 1-2 aday kalır
+        int side = polygons.length <= 1 ? 1
+                : Math.min(MAX_SIDE, 2 * (int) Math.ceil(Math.sqrt(polygons.length)));
+        this.cols = side;
+        this.rows = side;
+        this.cellW = Math.max((maxLng - minLng) / cols, Double.MIN_NORMAL);
+        this.cellH = Math.max((maxLat - minLat) / rows, Double.MIN_NORMAL);
+
+        int[] counts = new int[cols * rows];
+        for (CompiledPolygon p : polygons) {
+            forEachCell(p, cell -> counts[cell]++);
+        }
+        int[][] cells = new int[cols * rows][];
+        for (int c = 0; c < cells.length; c++) {
+            cells[c] = counts[c] == 0 ? EMPTY : new int[counts[c]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < polygons.length; i++) {
+            int idx = i;
+            forEachCell(polygons[i], cell -> cells[cell][counts[cell]++] = idx);
+        }
+        this.cells = cells;
+    }
+
+    public static PolygonGridIndex build(CompiledPolygon[] polygons) {
+        return new PolygonGridIndex(polygons);
+    }
+
+    /**
+     * @return noktayı içeren ilk polygonun indeksi, yoksa -1
+     */
+    public int findContaining(double lat, double lng) {
+        return findContaining(candidatesAt(lat, lng), lat, lng);
+    }
+
+    /**
+     * Daha önce {@link #candidatesAt} ile alınmış adaylar üzerinde içerme testi;
+     * aynı nokta için ızgara aramasının tekrarlanmasını önler.
+     *
+     * @return noktayı içeren ilk polygonun indeksi, yoksa -1
+     */
+    public int findContaining(int[] candidates, double lat, double lng) {
+        for (int idx : candidates) {
+            if (polygons[idx].contains(lat, lng)) return idx;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return polygons.length;
+    }
+
+    /**
+     * Noktanın düştüğü hücredeki aday polygon indeksleri. Dönen dizi indeksin
+     * kendi hücresidir (kopya değildir); çağıran değiştirmemelidir.
+     */
+    public int[] candidatesAt(double lat, double lng) {
+        if (polygons.length == 0) return EMPTY;
+        if (lng < minLng || lng > maxLng || lat < minLat || lat > maxLat) return EMPTY;
+        int col = Math.min(cols - 1, (int) ((lng - minLng) / cellW));
+        int row = Math.min(rows - 1, (int) ((lat - minLat) / cellH));
+        return cells[row * cols + col];
+    }
+
+    private void forEachCell(CompiledPolygon p, IntConsumer action) {
+        int c0 = Math.min(cols - 1, (int) ((p.minLng() - minLng) / cellW));
+        int c1 = Math.min(cols - 1, (int) ((p.maxLng() - minLng) / cellW));
+        int r0 = Math.min(rows - 1, (int) ((p.minLat() - minLat) / cellH));
+        int r1 = Math.min(rows - 1, (int) ((p.maxLat() - minLat) / cellH));
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                action.accept(r * cols + c);
+            }
+        }
+    }
+}
@@ -48,14 +48,16 @@ public class ParentChildLocationController {
     }
 
     @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamLocations(Authentication auth, HttpServletRequest request) {
+    public SseEmitter streamLocations(Authentication auth, HttpServletRequest request,
+                                      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
         // Client bağlantısı koptuğunda Tomcat aynı URL'ye DispatcherType.ERROR ile tekrar
         // gelir. startAsync() ERROR dispatch'te çalışmaz → null dönerek atla.
         if (request.getDispatcherType() == DispatcherType.ERROR) {
             return null;
         }
         String parentId = SecurityUtils.extractParentId(auth);
-        return sseEmitterRegistry.register(parentId);
+        // Yeniden bağlanan istemciye yalnızca kaçırdığı olaylar tekrar yazılır
+        return sseEmitterRegistry.register(parentId, lastEventId);
     }
 
     @PutMapping("/fcm-token")
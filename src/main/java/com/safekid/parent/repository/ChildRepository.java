@@ -1,7 +1,11 @@
 package com.safekid.parent.repository;
 
+import com.safekid.billing.entity.SubscriptionStatus;
 import com.safekid.parent.entity.ChildEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,4 +18,30 @@ public interface ChildRepository extends JpaRepository<ChildEntity, String> {
 
     Optional<ChildEntity> findByCocukUniqueId(String cocukUniqueId);
 
+    /**
+     * Belirtilen abonelik durumundaki ebeveynlerin tüm çocukları, parent'ları ile birlikte.
+     * Scheduler'ın ebeveyn başına ayrı sorgu atmasını ve lazy parent yüklemesini önler.
+     */
+    @Query("""
+            SELECT c FROM ChildEntity c
+            JOIN FETCH c.parent p
+            WHERE p.ebeveynUniqueId IN (
+                SELECT s.parent.ebeveynUniqueId FROM SubscriptionEntity s
+                WHERE s.status = :status
+            )
+            """)
+    List<ChildEntity> findAllWithParentBySubscriptionStatus(@Param("status") SubscriptionStatus status);
+
+    /**
+     * Keyset sayfalama: {@code afterId}'den sonraki çocuklar, parent'ları ile birlikte.
+     * İlk sayfa için {@code afterId} boş string verilir.
+     */
+    @Query("""
+            SELECT c FROM ChildEntity c
+            JOIN FETCH c.parent
+            WHERE c.cocukUniqueId > :afterId
+            ORDER BY c.cocukUniqueId ASC
+            """)
+    List<ChildEntity> findPageWithParentAfter(@Param("afterId") String afterId, Limit limit);
+
 }
@@ -2,6 +2,7 @@ package com.safekid.parent.service;
 
 import com.safekid.auth.entity.ParentEntity;
 import com.safekid.auth.repository.ParentRepository;
+import com.safekid.child.service.LastKnownLocationCache;
 import com.safekid.config.SecurityUtils;
 import com.safekid.parent.dto.ChildCreateRequest;
 import com.safekid.parent.dto.ChildResponse;
@@ -24,6 +25,7 @@ public class ChildService {
 
     private final ChildRepository childRepository;
     private final ParentRepository parentRepository;
+    private final LastKnownLocationCache lastKnown;
 
     private String currentParentId() {
         return SecurityUtils.extractParentId(
@@ -52,6 +54,7 @@ public class ChildService {
         c.setParent(parent);
 
         childRepository.save(c);
+        lastKnown.childAddedAfterCommit(c);
 
         return toResponse(c);
     }
@@ -77,6 +80,7 @@ public class ChildService {
         ChildEntity c = childRepository.findByCocukUniqueIdAndParent_EbeveynUniqueId(childId, parentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Child not found"));
         childRepository.delete(c);
+        lastKnown.childRemovedAfterCommit(childId);
     }
 
     private ChildResponse toResponse(ChildEntity c) {
@@ -6,6 +6,7 @@ import com.safekid.auth.repository.ParentRepository;
 import com.safekid.auth.userprincipal.ParentPrincipalService;
 import com.safekid.child.dto.LocationResponse;
 import com.safekid.child.service.ChildLocationService;
+import com.safekid.child.service.LastKnownLocationCache;
 import com.safekid.parent.entity.ChildEntity;
 import com.safekid.parent.dto.ChildCreateRequest;
 import com.safekid.parent.dto.ChildResponse;
@@ -22,15 +23,18 @@ public class ParentService {
     private final ChildRepository childRepository;
     private final ChildLocationService childLocationService;
     private final ParentRepository parentRepo;
+    private final LastKnownLocationCache lastKnown;
 
     public ParentService(ParentPrincipalService principalService,
                          ChildRepository childRepository,
                          ChildLocationService childLocationService,
-                         ParentRepository parentRepo) {
+                         ParentRepository parentRepo,
+                         LastKnownLocationCache lastKnown) {
         this.principalService = principalService;
         this.childRepository = childRepository;
         this.childLocationService = childLocationService;
         this.parentRepo = parentRepo;
+        this.lastKnown = lastKnown;
     }
 
     @Transactional
@@ -44,6 +48,7 @@ public class ParentService {
         child.setParent(parent);
 
         childRepository.save(child);
+        lastKnown.childAddedAfterCommit(child);
 
         return new ChildResponse(
                 child.getCocukUniqueId(),
@@ -55,13 +60,7 @@ public class ParentService {
     public LocationResponse getChildLastLocation(String childId) {
         ParentEntity parent = principalService.getCurrentParentOrThrow();
 
-        ChildEntity child = childRepository.findByCocukUniqueId(childId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Child not found"));
-
-        if (!child.getParent().getEbeveynUniqueId().equals(parent.getEbeveynUniqueId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bu çocuk sana ait değil");
-        }
-
+        // Sahiplik kontrolü (404/403) getLastLocationForParent içinde, önbellekten yapılır
         return childLocationService.getLastLocationForParent(
                 parent.getEbeveynUniqueId(),
                 childId
@@ -0,0 +1,22 @@
+-- 015-pooled-id-sequences.xml ile aynı iş, ancak Liquibase kapalıyken de çalışır:
+-- spring.sql.init Hibernate'ten önce koşar. Entity'ler allocationSize = 50 kullanır ve
+-- Hibernate açılışta sequence artışını bununla karşılaştırır; 1'de kalan eski
+-- sequence'ler uygulamanın açılmasını engeller. Tekrar çalıştırılabilir; sequence
+-- yoksa (boş veritabanı, ddl-auto henüz oluşturmamışsa) adım atlanır.
+DO $$
+DECLARE
+    t   text;
+    inc bigint;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['cocuk_konum', 'alan_ihlal_bildirimi', 'ai_analysis', 'ai_chat_session']
+    LOOP
+        SELECT s.increment_by INTO inc
+        FROM pg_sequences s
+        WHERE s.schemaname = current_schema() AND s.sequencename = t || '_id_seq';
+
+        IF inc IS NOT NULL AND inc <> 50 THEN
+            EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', t || '_id_seq');
+        END IF;
+    END LOOP;
+END $$
+@@
@@ -0,0 +1,201 @@
+package com.safekid.ai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safekid.ai.client.CircuitBreaker;
+import com.safekid.ai.client.ClaudeApiClient;
+import com.safekid.ai.client.TokenBucket;
+import com.safekid.ai.config.AnthropicProperties;
+import com.safekid.ai.entity.AiChatSessionEntity;
+import com.safekid.ai.entity.ChatRole;
+import com.safekid.ai.repository.AiChatSessionRepository;
+import com.safekid.parent.entity.ChildEntity;
+import com.safekid.parent.repository.ChildRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streaming sohbet akışı: JDK {@link HttpServer} hazır bir {@code text/event-stream}
+ * yanıtı döner, istemci gerçek HTTP üzerinden okur.
+ */
+class AiChatServiceStreamTest {
+
+    private static final String PARENT_ID = "parent-1";
+    private static final String CHILD_ID = "child-1";
+
+    /** İki satıra bölünmüş data, message_stop'tan sonra okunmaması gereken bir delta. */
+    private static final String COMPLETE_STREAM = """
+            event: message_start
+            data: {"type": "message_start", "message": {"usage": {"input_tokens": 12, "output_tokens": 1}}}
+
+            event: content_block_start
+            data: {"type": "content_block_start", "index": 0, "content_block": {"type": "text", "text": ""}}
+
+            event: ping
+            data: {"type": "ping"}
+
+            event: content_block_delta
+            data: {"type": "content_block_delta", "index": 0,
+            data:  "delta": {"type": "text_delta", "text": "Merhaba"}}
+
+            event: content_block_delta
+            data: {"type": "content_block_delta", "index": 0, "delta": {"type": "text_delta", "text": " dünya"}}
+
+            event: content_block_stop
+            data: {"type": "content_block_stop", "index": 0}
+
+            event: message_delta
+            data: {"type": "message_delta", "delta": {"stop_reason": "end_turn"}, "usage": {"output_tokens": 4}}
+
+            event: message_stop
+            data: {"type": "message_stop"}
+
+            event: content_block_delta
+            data: {"type": "content_block_delta", "index": 0, "delta": {"type": "text_delta", "text": "SONRA"}}
+
+            """;
+
+    private static final String ERROR_STREAM = """
+            event: message_start
+            data: {"type": "message_start", "message": {"usage": {"input_tokens": 12, "output_tokens": 1}}}
+
+            event: content_block_delta
+            data: {"type": "content_block_delta", "index": 0, "delta": {"type": "text_delta", "text": "Yarım"}}
+
+            event: error
+            data: {"type": "error",
+            data:  "error": {"type": "overloaded_error", "message": "Overloaded"}}
+
+            """;
+
+    private HttpServer server;
+    private volatile String stream;
+
+    private ClaudeApiClient client;
+    private ChildRepository childRepository;
+    private AiChatSessionRepository chatSessionRepository;
+    private AiChatService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/messages", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(stream.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+
+        AnthropicProperties properties = new AnthropicProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.setModel("test-model");
+
+        client = new ClaudeApiClient(
+                new RestTemplate(new JdkClientHttpRequestFactory()),
+                new ObjectMapper(),
+                new TokenBucket(5, 100),
+                new CircuitBreaker(5, Duration.ofSeconds(30)),
+                properties,
+                new SimpleMeterRegistry());
+
+        ChildEntity child = new ChildEntity();
+        child.setCocukUniqueId(CHILD_ID);
+        child.setCocukAdi("Ada");
+        childRepository = mock(ChildRepository.class);
+        when(childRepository.findByCocukUniqueIdAndParent_EbeveynUniqueId(CHILD_ID, PARENT_ID))
+                .thenReturn(Optional.of(child));
+
+        ChatContextCache contextCache = mock(ChatContextCache.class);
+        when(contextCache.get(anyString(), anyString()))
+                .thenReturn(ChatContextCache.ChatContext.empty(Long.MIN_VALUE));
+
+        chatSessionRepository = mock(AiChatSessionRepository.class);
+        service = new AiChatService(client, childRepository, chatSessionRepository, contextCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void streamsDeltasUntilMessageStop() {
+        stream = COMPLETE_STREAM;
+        List<String> deltas = new ArrayList<>();
+
+        String response = client.streamMessages("system",
+                List.of(Map.of("role", "user", "content", "Nerede?")), deltas::add);
+
+        assertThat(deltas).containsExactly("Merhaba", " dünya");
+        assertThat(response).isEqualTo("Merhaba dünya");
+    }
+
+    @Test
+    void errorEventFailsTheCallAfterDeliveredDeltas() {
+        stream = ERROR_STREAM;
+        List<String> deltas = new CopyOnWriteArrayList<>();
+
+        assertThatThrownBy(() -> client.streamMessages("system",
+                List.of(Map.of("role", "user", "content", "Nerede?")), deltas::add))
+                .hasMessageContaining("overloaded_error")
+                .hasMessageContaining("Overloaded");
+        assertThat(deltas).containsExactly("Yarım");
+    }
+
+    @Test
+    void chatStreamSavesTheCompleteTurn() {
+        stream = COMPLETE_STREAM;
+
+        service.chatStream(PARENT_ID, CHILD_ID, "Nerede?");
+
+        ArgumentCaptor<AiChatSessionEntity> saved = ArgumentCaptor.forClass(AiChatSessionEntity.class);
+        verify(chatSessionRepository, timeout(5_000).times(2)).save(saved.capture());
+        List<AiChatSessionEntity> turn = saved.getAllValues();
+
+        assertThat(turn.get(0).getRole()).isEqualTo(ChatRole.USER);
+        assertThat(turn.get(0).getContent()).isEqualTo("Nerede?");
+        assertThat(turn.get(1).getRole()).isEqualTo(ChatRole.ASSISTANT);
+        assertThat(turn.get(1).getContent()).isEqualTo("Merhaba dünya");
+        assertThat(turn).allSatisfy(msg -> {
+            assertThat(msg.getParentId()).isEqualTo(PARENT_ID);
+            assertThat(msg.getChild().getCocukUniqueId()).isEqualTo(CHILD_ID);
+        });
+    }
+
+    @Test
+    void chatStreamDoesNotSaveAnInterruptedTurn() {
+        stream = ERROR_STREAM;
+
+        service.chatStream(PARENT_ID, CHILD_ID, "Nerede?");
+
+        verify(chatSessionRepository, after(1_000).never()).save(any());
+    }
+}
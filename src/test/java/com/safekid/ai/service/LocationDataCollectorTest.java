@@ -0,0 +1,103 @@
+package com.safekid.ai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tek geçişli pencere hızı serisi, indeks başına geriye tarayan
+ * {@link LocationDataCollector#calculateWindowAverageSpeedKmh} ile aynı sonucu vermeli.
+ */
+class LocationDataCollectorTest {
+
+    private final LocationDataCollector collector = new LocationDataCollector();
+
+    @Test
+    void seriesMatchesPerIndexScanOnIrregularTimestamps() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            LocationTrace trace = irregularTrace(random, 300);
+            for (long windowSeconds : new long[]{30, 60, 120, 600}) {
+                double[] series = collector.windowAverageSpeedSeriesKmh(trace, windowSeconds);
+
+                assertThat(series).hasSize(trace.size());
+                for (int i = 0; i < trace.size(); i++) {
+                    double expected = collector.calculateWindowAverageSpeedKmh(trace, i, windowSeconds);
+                    assertThat(series[i])
+                            .as("tur %d, pencere %d sn, indeks %d", round, windowSeconds, i)
+                            .isCloseTo(expected, within(1e-6 * Math.max(1, expected)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void windowBoundaryIsInclusiveAndNarrowWindowsAreZero() {
+        // 0 sn, 30 sn (tam pencere sınırında), 31 sn, 31.5 sn, 90 sn
+        LocationTrace trace = new LocationTrace.Builder()
+                .add(41.000, 29.000, 0)
+                .add(41.001, 29.000, 30_000)
+                .add(41.002, 29.000, 31_000)
+                .add(41.002, 29.001, 31_500)
+                .add(41.003, 29.001, 90_000)
+                .build();
+
+        double[] series = collector.windowAverageSpeedSeriesKmh(trace, 30);
+        for (int i = 0; i < trace.size(); i++) {
+            assertThat(series[i]).isCloseTo(
+                    collector.calculateWindowAverageSpeedKmh(trace, i, 30), within(1e-9));
+        }
+        assertThat(series[0]).isZero();
+        assertThat(series[1]).isPositive();   // başlangıç tam pencere sınırında, dahil
+        assertThat(series[2]).isZero();       // pencere 1 sn: çok dar
+        assertThat(series[3]).isZero();
+        assertThat(series[4]).isZero();       // pencerede tek nokta
+    }
+
+    @Test
+    void maxMatchesMaximumOfPerIndexScan() {
+        Random random = new Random(11);
+        LocationTrace trace = irregularTrace(random, 1_000);
+
+        double expected = 0;
+        for (int i = 0; i < trace.size(); i++) {
+            expected = Math.max(expected, collector.calculateWindowAverageSpeedKmh(trace, i, 60));
+        }
+        assertThat(collector.maxWindowAverageSpeedKmh(trace, 60))
+                .isCloseTo(expected, within(1e-6 * Math.max(1, expected)));
+    }
+
+    @Test
+    void shortTracesYieldZeros() {
+        assertThat(collector.windowAverageSpeedSeriesKmh(LocationTrace.empty(), 60)).isEmpty();
+        LocationTrace single = new LocationTrace.Builder().add(41.0, 29.0, 1_000).build();
+        assertThat(collector.windowAverageSpeedSeriesKmh(single, 60)).containsExactly(0.0);
+    }
+
+    /**
+     * Düzensiz aralıklı iz: aynı milisaniyede tekrarlar, saniye altı aralıklar,
+     * saniye sınırına denk gelen zamanlar ve pencereden uzun boşluklar.
+     */
+    private static LocationTrace irregularTrace(Random random, int size) {
+        LocationTrace.Builder builder = new LocationTrace.Builder(size);
+        double lat = 41.0, lng = 29.0;
+        long millis = 1_700_000_000_000L + random.nextInt(1_000);
+        for (int i = 0; i < size; i++) {
+            builder.add(lat, lng, millis);
+            lat += (random.nextDouble() - 0.5) * 0.002;
+            lng += (random.nextDouble() - 0.5) * 0.002;
+            millis += switch (random.nextInt(6)) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(1_000);
+                case 2 -> 1_000L * random.nextInt(31);
+                case 3 -> 30_000;
+                case 4 -> 300_000 + random.nextInt(600_000);
+                default -> random.nextInt(45_000);
+            };
+        }
+        return builder.build();
+    }
+}
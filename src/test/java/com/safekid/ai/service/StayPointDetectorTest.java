@@ -0,0 +1,153 @@
+package com.safekid.ai.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Sentetik iz üzerinde durak tespiti: ev (10 dk) → yol → kısa duraklama → okul (10 dk) → ayrılış.
+ */
+class StayPointDetectorTest {
+
+    private static final double RADIUS_M = 75;
+    private static final long MIN_DWELL_S = 300;
+
+    private static final double HOME_LAT = 41.0000, HOME_LNG = 29.0000;
+    private static final double SCHOOL_LAT = 41.0100, SCHOOL_LNG = 29.0100;
+
+    /** ~11 m mertebesinde GPS sapması (0.0001° enlem). */
+    private static final double[][] JITTER = {
+            {0, 0}, {0.0001, 0}, {-0.0001, 0.0001}, {0.00005, -0.0001}, {0, 0.0001}, {-0.00005, -0.00005}
+    };
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void detectsEntryExitAndCentroidOfEachStay() {
+        LocationTrace trace = syntheticTrace();
+
+        List<Visit> visits = StayPointDetector.detect(trace, RADIUS_M, MIN_DWELL_S);
+
+        assertThat(visits).hasSize(2);
+
+        Visit home = visits.get(0);
+        assertThat(home.enteredAt()).isEqualTo(at(0));
+        assertThat(home.exitedAt()).isEqualTo(at(600));
+        assertThat(home.pointCount()).isEqualTo(6);
+        assertThat(home.firstIndex()).isEqualTo(0);
+        assertThat(home.lastIndex()).isEqualTo(5);
+        assertThat(home.lat()).isCloseTo(HOME_LAT + meanJitter(0, 6), within(1e-12));
+        assertThat(home.lng()).isCloseTo(HOME_LNG + meanJitter(1, 6), within(1e-12));
+
+        Visit school = visits.get(1);
+        assertThat(school.enteredAt()).isEqualTo(at(960));
+        assertThat(school.exitedAt()).isEqualTo(at(1_560));
+        assertThat(school.pointCount()).isEqualTo(5);
+        assertThat(school.firstIndex()).isEqualTo(11);
+        assertThat(school.lastIndex()).isEqualTo(15);
+        assertThat(school.lat()).isCloseTo(SCHOOL_LAT + meanJitter(0, 5), within(1e-12));
+        assertThat(school.lng()).isCloseTo(SCHOOL_LNG + meanJitter(1, 5), within(1e-12));
+    }
+
+    @Test
+    void offerClosesAVisitOnTheFirstFixOutsideTheRadius() {
+        LocationTrace trace = syntheticTrace();
+        StayPointDetector detector = new StayPointDetector(RADIUS_M, MIN_DWELL_S);
+
+        List<Integer> closedAt = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i++) {
+            if (detector.offer(trace.lat(i), trace.lng(i), trace.epochMillis(i)) != null) closedAt.add(i);
+            if (i == 12) {
+                // Okulda 5 dk dolmadan henüz ziyaret yok
+                assertThat(detector.current()).isNull();
+            }
+            if (i == 15) {
+                // Ayrılmadan önce okul açık ziyaret olarak görünür
+                assertThat(detector.current().enteredAt()).isEqualTo(at(960));
+            }
+        }
+        // Evden çıkış (ilk yol noktası) ve okuldan çıkış (son nokta)
+        assertThat(closedAt).isEqualTo(List.of(6, 16));
+        assertThat(detector.current()).isNull();
+    }
+
+    @Test
+    void olderFixesAreIgnored() {
+        StayPointDetector detector = new StayPointDetector(RADIUS_M, MIN_DWELL_S);
+        detector.offer(HOME_LAT, HOME_LNG, T0);
+        detector.offer(HOME_LAT, HOME_LNG, T0 + 400_000);
+
+        // Sıra dışı gelen eski konum kümeyi ne büyütür ne kapatır
+        assertThat(detector.offer(SCHOOL_LAT, SCHOOL_LNG, T0 + 100_000)).isNull();
+        assertThat(detector.current().pointCount()).isEqualTo(2);
+        assertThat(detector.lastEpochMillis()).isEqualTo(T0 + 400_000);
+    }
+
+    @Test
+    void restoredStateContinuesLikeAnUninterruptedDetector() {
+        LocationTrace trace = syntheticTrace();
+        List<Visit> expected = StayPointDetector.detect(trace, RADIUS_M, MIN_DWELL_S);
+
+        // Okul kümesinin ortasında durdurulup durum tablosundan geri yükleniyormuş gibi
+        int split = 13;
+        StayPointDetector first = new StayPointDetector(RADIUS_M, MIN_DWELL_S);
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < split; i++) {
+            Visit closed = first.offer(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+            if (closed != null) visits.add(closed);
+        }
+        StayPointDetector second = new StayPointDetector(RADIUS_M, MIN_DWELL_S);
+        second.restore(first.state());
+        for (int i = split; i < trace.size(); i++) {
+            Visit closed = second.offer(trace.lat(i), trace.lng(i), trace.epochMillis(i));
+            if (closed != null) visits.add(closed);
+        }
+
+        assertThat(visits).hasSize(expected.size());
+        for (int v = 0; v < visits.size(); v++) {
+            Visit actual = visits.get(v);
+            Visit want = expected.get(v);
+            assertThat(actual.enteredAt()).isEqualTo(want.enteredAt());
+            assertThat(actual.exitedAt()).isEqualTo(want.exitedAt());
+            assertThat(actual.pointCount()).isEqualTo(want.pointCount());
+            assertThat(actual.lat()).isCloseTo(want.lat(), within(1e-12));
+            assertThat(actual.lng()).isCloseTo(want.lng(), within(1e-12));
+        }
+    }
+
+    /**
+     * 0-5: ev, 2 dk arayla (10 dk); 6-8: yol, ~500 m arayla; 9-10: 1 dk'lık kısa
+     * duraklama (ziyaret değil); 11-15: okul, 2.5 dk arayla (10 dk); 16: okuldan ayrılış.
+     */
+    private static LocationTrace syntheticTrace() {
+        LocationTrace.Builder b = new LocationTrace.Builder();
+        for (int i = 0; i < 6; i++) {
+            b.add(HOME_LAT + JITTER[i][0], HOME_LNG + JITTER[i][1], T0 + i * 120_000L);
+        }
+        b.add(41.0045, 29.0000, T0 + 660_000);
+        b.add(41.0090, 29.0000, T0 + 720_000);
+        b.add(41.0100, 29.0050, T0 + 780_000);
+        b.add(41.0100, 29.0060, T0 + 840_000);
+        b.add(41.0101, 29.0060, T0 + 900_000);
+        for (int i = 0; i < 5; i++) {
+            b.add(SCHOOL_LAT + JITTER[i][0], SCHOOL_LNG + JITTER[i][1], T0 + 960_000 + i * 150_000L);
+        }
+        b.add(41.0200, 29.0200, T0 + 1_620_000);
+        return b.build();
+    }
+
+    private static double meanJitter(int axis, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += JITTER[i][axis];
+        return sum / count;
+    }
+
+    private static Instant at(long secondsFromStart) {
+        return Instant.ofEpochMilli(T0 + secondsFromStart * 1000L);
+    }
+}
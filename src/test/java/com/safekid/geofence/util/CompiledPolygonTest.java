@@ -0,0 +1,150 @@
+package com.safekid.geofence.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tek geçişli {@link CompiledPolygon#contains} ile eski iki geçişli algoritma
+ * (önce tüm kenarlar, sonra ray casting) kenar ve köşe noktalarında aynı sonucu vermeli.
+ */
+class CompiledPolygonTest {
+
+    /** Kapalı kare (son nokta = ilk nokta), GeoJSON sırası [lng, lat]. */
+    private static final double[][] SQUARE = {
+            {29.00, 41.00}, {29.01, 41.00}, {29.01, 41.01}, {29.00, 41.01}, {29.00, 41.00}
+    };
+
+    /** Kapatılmamış içbükey (L biçimli) halka: son → ilk kenarı kenar kontrolüne girmez. */
+    private static final double[][] OPEN_L = {
+            {29.00, 41.00}, {29.02, 41.00}, {29.02, 41.01}, {29.01, 41.01}, {29.01, 41.02}, {29.00, 41.02}
+    };
+
+    @Test
+    void verticesAndEdgesAreInside() {
+        CompiledPolygon polygon = compile(SQUARE);
+
+        for (double[] v : SQUARE) {
+            assertThat(polygon.contains(v[1], v[0])).as("köşe %s,%s", v[1], v[0]).isTrue();
+        }
+        assertThat(polygon.contains(41.00, 29.005)).isTrue();   // alt kenar ortası
+        assertThat(polygon.contains(41.005, 29.01)).isTrue();   // sağ kenar ortası
+        assertThat(polygon.contains(41.005, 29.005)).isTrue();  // iç
+        assertThat(polygon.contains(41.02, 29.005)).isFalse();  // dış
+    }
+
+    @Test
+    void matchesLegacyOnEdgesVerticesAndNearBoundary() {
+        for (double[][] ring : List.of(SQUARE, OPEN_L)) {
+            CompiledPolygon polygon = compile(ring);
+            double[] xs = column(ring, 0);
+            double[] ys = column(ring, 1);
+
+            for (double[] p : boundaryProbes(ring)) {
+                double lat = p[1], lng = p[0];
+                boolean expected = legacyIsInside(lat, lng, xs, ys);
+                assertThat(polygon.contains(lat, lng)).as("nokta %s,%s", lat, lng).isEqualTo(expected);
+                assertThat(PointInPolygon.isInside(lat, lng, xs, ys)).isEqualTo(expected);
+                assertThat(PointInPolygon.isInside(lat, lng, toGeoJson(ring))).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void matchesLegacyOnRandomPointsAroundBoundingBox() {
+        Random random = new Random(42);
+        for (double[][] ring : List.of(SQUARE, OPEN_L)) {
+            CompiledPolygon polygon = compile(ring);
+            double[] xs = column(ring, 0);
+            double[] ys = column(ring, 1);
+
+            for (int i = 0; i < 20_000; i++) {
+                double lng = 28.99 + random.nextDouble() * 0.04;
+                double lat = 40.99 + random.nextDouble() * 0.04;
+                assertThat(polygon.contains(lat, lng))
+                        .as("nokta %s,%s", lat, lng)
+                        .isEqualTo(legacyIsInside(lat, lng, xs, ys));
+            }
+        }
+    }
+
+    /** Köşeler, kenar ortaları ve kenarlara dik yönde EPS / EDGE_MARGIN mertebesinde kaydırılmış noktalar. */
+    private static List<double[]> boundaryProbes(double[][] ring) {
+        double[] offsets = {0, 1e-9, -1e-9, 1e-7, -1e-7, 1e-4, -1e-4,
+                CompiledPolygon.EDGE_MARGIN / 2, -CompiledPolygon.EDGE_MARGIN / 2,
+                CompiledPolygon.EDGE_MARGIN, -CompiledPolygon.EDGE_MARGIN};
+        List<double[]> probes = new ArrayList<>();
+        int n = ring.length;
+        for (int i = 0; i < n; i++) {
+            double[] a = ring[i];
+            double[] b = ring[(i + 1) % n];
+            for (double t : new double[]{0, 0.25, 0.5, 1}) {
+                double x = a[0] + (b[0] - a[0]) * t;
+                double y = a[1] + (b[1] - a[1]) * t;
+                for (double d : offsets) {
+                    probes.add(new double[]{x + d, y});
+                    probes.add(new double[]{x, y + d});
+                    probes.add(new double[]{x + d, y + d});
+                }
+            }
+        }
+        return probes;
+    }
+
+    /** Eski iki geçişli algoritma: kenarlar (son → ilk hariç), sonra ray casting. */
+    private static boolean legacyIsInside(double lat, double lng, double[] xs, double[] ys) {
+        int n = xs.length;
+        if (n < 3) return false;
+
+        for (int i = 0; i < n - 1; i++) {
+            if (legacyOnSegment(lng, lat, xs[i], ys[i], xs[i + 1], ys[i + 1])) {
+                return true;
+            }
+        }
+
+        boolean inside = false;
+        int j = n - 1;
+        for (int i = 0; i < n; i++) {
+            if ((ys[i] > lat) != (ys[j] > lat)) {
+                double intersectLng = (xs[j] - xs[i]) * (lat - ys[i]) / (ys[j] - ys[i]) + xs[i];
+                if (lng <= intersectLng) {
+                    inside = !inside;
+                }
+            }
+            j = i;
+        }
+        return inside;
+    }
+
+    private static boolean legacyOnSegment(double px, double py,
+                                           double x1, double y1, double x2, double y2) {
+        double cross = (px - x1) * (y2 - y1) - (py - y1) * (x2 - x1);
+        if (Math.abs(cross) > CompiledPolygon.EPS) return false;
+        double dot = (px - x1) * (px - x2) + (py - y1) * (py - y2);
+        return dot <= CompiledPolygon.EPS;
+    }
+
+    private static CompiledPolygon compile(double[][] ring) {
+        return new CompiledPolygon(column(ring, 0), column(ring, 1));
+    }
+
+    private static double[] column(double[][] ring, int index) {
+        double[] out = new double[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            out[i] = ring[i][index];
+        }
+        return out;
+    }
+
+    private static List<List<Double>> toGeoJson(double[][] ring) {
+        List<List<Double>> out = new ArrayList<>(ring.length);
+        for (double[] p : ring) {
+            out.add(List.of(p[0], p[1]));
+        }
+        return out;
+    }
+}